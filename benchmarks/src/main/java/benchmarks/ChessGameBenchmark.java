@@ -0,0 +1,68 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rules engine calls the server makes for every move: move generation, making a move
+ * and the game over checks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ChessGameBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public Fixtures fixture;
+
+    private ChessGame game;
+    private List<ChessMove> cycle;
+
+    @Setup
+    public void setup() {
+        Fixtures.silenceStdout();
+        game = fixture.game();
+        cycle = fixture.cycle();
+    }
+
+    /**
+     * validMoves for every square, like the client highlighting moves for each piece
+     */
+    @Benchmark
+    public void validMovesAllSquares(Blackhole bh) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                bh.consume(game.validMoves(ChessPosition.of(row, col)));
+            }
+        }
+    }
+
+    /**
+     * Four makeMove calls that bring the game back to its starting position
+     */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void makeMove() throws InvalidMoveException {
+        for (ChessMove move : cycle) {
+            game.makeMove(move);
+        }
+    }
+
+    /**
+     * The four game over checks the websocket handler runs after each move
+     */
+    @Benchmark
+    public void gameEndChecks(Blackhole bh) {
+        bh.consume(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        bh.consume(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        bh.consume(game.isInStalemate(ChessGame.TeamColor.WHITE));
+        bh.consume(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import chess.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Positions shared by the benchmarks, written as FEN so they're easy to compare with
+ * other engines. Each one has a four move cycle that brings the position back to where
+ * it started, so makeMove can be benchmarked on the same game over and over.
+ */
+public enum Fixtures {
+    OPENING("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+            "g1f3", "g8f6", "f3g1", "f6g8"),
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w",
+            "g1h1", "g8h8", "h1g1", "h8g8"),
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w",
+            "b4b3", "h5h6", "b3b4", "h6h5");
+
+    // game over positions for the checkmate/stalemate benchmarks, the side to move has no moves
+    public static final String CHECKMATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w";
+    public static final String STALEMATE = "7k/5Q2/6K1/8/8/8/8/8 b";
+
+    private final String fen;
+    private final List<ChessMove> cycle;
+
+    Fixtures(String fen, String... cycle) {
+        this.fen = fen;
+        this.cycle = Arrays.stream(cycle).map(Fixtures::move).toList();
+    }
+
+    public ChessGame game() {
+        return game(fen);
+    }
+
+    public List<ChessMove> cycle() {
+        return cycle;
+    }
+
+    public static ChessGame game(String fen) {
+        return ChessGame.fromFen(fen);
+    }
+
+    /**
+     * The game classes still print as they go, send that nowhere so the JMH output stays
+     * readable (the string building is still measured)
+     */
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    private static ChessMove move(String move) {
+        return ChessMove.of(position(move.substring(0, 2)), position(move.substring(2, 4)), null);
+    }
+
+    private static ChessPosition position(String square) {
+        return ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import dataaccess.memory.MemoryGameDAO;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemoryGameDAO operations with a number of games already stored
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameDAOBenchmark {
+
+    @Param({"10", "1000"})
+    public int games;
+
+    private MemoryGameDAO gameDAO;
+    private ChessGame game;
+    private int nextGameID;
+
+    @Setup
+    public void setup() throws DataAccessException {
+        Fixtures.silenceStdout();
+        game = Fixtures.MIDDLEGAME.game();
+        gameDAO = new MemoryGameDAO();
+        for (int i = 0; i < games; i++) {
+            gameDAO.createGame(new GameData(0, "white", "black", "game" + i, game));
+        }
+    }
+
+    @Benchmark
+    public GameData getGame() {
+        // cycle through the stored IDs (they start at 1)
+        nextGameID = nextGameID % games + 1;
+        return gameDAO.getGame(nextGameID);
+    }
+
+    @Benchmark
+    public void updateGame() throws DataAccessException {
+        nextGameID = nextGameID % games + 1;
+        gameDAO.updateGame(new GameData(nextGameID, "white", "black", "game", game));
+    }
+
+    @Benchmark
+    public List<GameData> listGames() {
+        return gameDAO.listGames();
+    }
+
+    /**
+     * Fills an empty DAO with the same number of games. Each createGame looks for the first
+     * free ID, so this grows faster than linearly with the number of games.
+     */
+    @Benchmark
+    public MemoryGameDAO createGames() throws DataAccessException {
+        MemoryGameDAO freshDAO = new MemoryGameDAO();
+        for (int i = 0; i < games; i++) {
+            freshDAO.createGame(new GameData(0, "white", null, "game" + i, game));
+        }
+        return freshDAO;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * isInCheckmate/isInStalemate on positions where they're true, which is the worst case
+ * since every move has to be ruled out
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameOverBenchmark {
+    private ChessGame checkmate;
+    private ChessGame stalemate;
+
+    @Setup
+    public void setup() {
+        Fixtures.silenceStdout();
+        checkmate = Fixtures.game(Fixtures.CHECKMATE);
+        stalemate = Fixtures.game(Fixtures.STALEMATE);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return checkmate.isInCheckmate(checkmate.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return stalemate.isInStalemate(stalemate.getTeamTurn());
+    }
+}
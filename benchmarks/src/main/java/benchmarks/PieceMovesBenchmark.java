@@ -0,0 +1,60 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChessPiece.pieceMoves for every piece on the board. Run with the GC profiler to see the
+ * allocations per call, which should only be the returned list:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar PieceMovesBenchmark -prof gc
+ * </pre>
+ * gc.alloc.rate.norm is bytes per operation, divide by the number of pieces for one call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public Fixtures fixture;
+
+    private ChessBoard board;
+    private ChessPosition[] positions;
+    private ChessPiece[] pieces;
+
+    @Setup
+    public void setup() {
+        Fixtures.silenceStdout();
+        board = fixture.game().getBoard();
+
+        List<ChessPosition> occupied = new ArrayList<>();
+        for (int square = 0; square < 64; square++) {
+            if (board.getPiece(square) != null) {
+                occupied.add(ChessPosition.fromSquare(square));
+            }
+        }
+        positions = occupied.toArray(new ChessPosition[0]);
+        pieces = new ChessPiece[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            pieces[i] = board.getPiece(positions[i]);
+        }
+    }
+
+    @Benchmark
+    public void pieceMovesAllPieces(Blackhole bh) {
+        for (int i = 0; i < pieces.length; i++) {
+            bh.consume(pieces[i].pieceMoves(board, positions[i]));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import dataaccess.sql.SQLGameDAO;
+import model.GameData;
+import org.openjdk.jmh.annotations.*;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization work done for each move: the game SQLGameDAO reads and writes (as JSON, FEN
+ * or with GameCodec), and the LOAD_GAME message sent to every connection in the game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public Fixtures fixture;
+
+    private Gson serializer;
+    private GameData gameData;
+    private String gameJson;
+    private byte[] gameBytes;
+    private String gameFen;
+    private ServerMessage loadGame;
+
+    @Setup
+    public void setup() {
+        Fixtures.silenceStdout();
+        serializer = SQLGameDAO.createSerializer();
+        gameData = new GameData(1, "white", "black", "benchmark", fixture.game());
+        gameJson = serializer.toJson(gameData.game());
+        gameBytes = GameCodec.encode(gameData.game());
+        gameFen = gameData.game().toFen();
+        loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameData);
+    }
+
+    @Benchmark
+    public String gameToJson() {
+        return serializer.toJson(gameData.game());
+    }
+
+    @Benchmark
+    public ChessGame gameFromJson() {
+        return serializer.fromJson(gameJson, ChessGame.class);
+    }
+
+    /**
+     * What updateGame followed by getGame costs in serialization
+     */
+    @Benchmark
+    public ChessGame gameRoundTrip() {
+        return serializer.fromJson(serializer.toJson(gameData.game()), ChessGame.class);
+    }
+
+    @Benchmark
+    public byte[] gameToBinary() {
+        return GameCodec.encode(gameData.game());
+    }
+
+    @Benchmark
+    public ChessGame gameFromBinary() {
+        return GameCodec.decode(gameBytes);
+    }
+
+    /**
+     * Same as gameRoundTrip with SQLGameDAO's BINARY storage format
+     */
+    @Benchmark
+    public ChessGame gameRoundTripBinary() {
+        return GameCodec.decode(GameCodec.encode(gameData.game()));
+    }
+
+    @Benchmark
+    public String gameToFen() {
+        return gameData.game().toFen();
+    }
+
+    @Benchmark
+    public ChessGame gameFromFen() {
+        return ChessGame.fromFen(gameFen);
+    }
+
+    @Benchmark
+    public String loadGameMessageToString() {
+        return loadGame.toString();
+    }
+}
@@ -9,11 +9,14 @@ import model.GameData;
 import model.ResponseException;
 import ui.websocket.NotificationHandler;
 import ui.websocket.WebSocketFacade;
+import websocket.messages.GameDelta;
 import websocket.messages.ServerMessage;
 
 public class GameplayUI implements NotificationHandler {
 
-    private ChessBoard chessBoard;
+    // the client's copy of the game, GAME_DELTA messages are applied to it
+    private ChessGame game = new ChessGame();
+    private ChessBoard chessBoard = game.getBoard();
     private final ChessGame.TeamColor playerColor;
     private final WebSocketFacade ws;
     private final String authToken;
@@ -27,6 +30,7 @@ public class GameplayUI implements NotificationHandler {
         this.gameID = gameID;
         this.chessClient = chessClient;
         this.ws = new WebSocketFacade(url, this);
+        ws.connect(authToken, gameID);
     }
 
     @Override
@@ -42,21 +46,36 @@ public class GameplayUI implements NotificationHandler {
                 }
                 assert gameData != null;
 
-                ChessGame game = gameData.game();
-                assert game != null;
+                assert gameData.game() != null;
 
-                // create new board from game state (don't reset existing one)
-                ChessBoard newBoard = game.getBoard();
-
-                // update chessboard
-                chessBoard.resetBoard();
-                updateBoard(newBoard);
+                // the server's game replaces ours, later deltas are applied to it
+                game = gameData.game();
+                chessBoard = game.getBoard();
 
                 System.out.println("Drawing updated board:");
                 drawChessboard(chessBoard, playerColor);
 
                 System.out.println("Board update complete");
             }
+            case GAME_DELTA -> {
+                GameDelta delta = notification.getDelta();
+                if (!delta.applyTo(game)) {
+                    // our copy was behind or different, get the whole game instead
+                    System.out.println("Board out of date, reloading the game");
+                    ws.resync(authToken, gameID);
+                    return;
+                }
+                chessBoard = game.getBoard();
+                drawChessboard(chessBoard, playerColor);
+
+                if (delta.checkmate()) {
+                    System.out.println(delta.teamTurn() + " is in checkmate");
+                } else if (delta.stalemate()) {
+                    System.out.println("Stalemate");
+                } else if (delta.check()) {
+                    System.out.println(delta.teamTurn() + " is in check");
+                }
+            }
             case NOTIFICATION -> {
                 // Display the notification message
                 String msg = notification.getMessage();
@@ -70,18 +89,6 @@ public class GameplayUI implements NotificationHandler {
         }
     }
 
-    private void updateBoard(ChessBoard newBoard) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = newBoard.getPiece(position);
-                if (piece != null) {
-                    chessBoard.addPiece(position, piece);
-                }
-            }
-        }
-    }
-
     // process user commands
     public String eval(String input) throws ResponseException {
         try {
@@ -140,7 +147,7 @@ public class GameplayUI implements NotificationHandler {
             ChessPosition end = parseChessPosition(params[1]);
 
             // make chessMove object
-            ChessMove chessMove = new ChessMove(start, end, null);
+            ChessMove chessMove = ChessMove.of(start, end, null);
 
             System.out.println("player color: " + playerColor);
             System.out.println("current game state: " + chessBoard.toString());
@@ -287,7 +294,7 @@ public class GameplayUI implements NotificationHandler {
         int rowNum = row - '0';
         int colNum = col - 'a' + 1;
 
-        return new ChessPosition(rowNum, colNum); // create new position with row num and col num
+        return ChessPosition.of(rowNum, colNum); // get the position with row num and col num
     }
 
     public static void drawChessboard(ChessBoard chessBoard, ChessGame.TeamColor playerColor) {
@@ -357,7 +364,7 @@ public class GameplayUI implements NotificationHandler {
         // fills out the board with correct pieces
         for (int row = 1; row <= 8; row++) {
             for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
+                ChessPosition position = ChessPosition.of(row, col);
                 ChessPiece piece = chessBoard.getPiece(position);
 
                 if (piece == null) {
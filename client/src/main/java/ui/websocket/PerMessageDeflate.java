@@ -0,0 +1,133 @@
+package ui.websocket;
+
+import org.glassfish.tyrus.core.ProtocolException;
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+import javax.websocket.Extension;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * permessage-deflate (RFC 7692) for the tyrus client, which doesn't come with it. The server
+ * compresses what it sends, mostly LOAD_GAMEs, and this inflates them.
+ * <p>
+ * Outgoing messages are left uncompressed, which the RFC allows. Commands are a hundred or so
+ * bytes and wouldn't get any smaller.
+ * <p>
+ * A message that would inflate to more than maxMessageSize bytes is a protocol error.
+ */
+public class PerMessageDeflate implements ExtendedExtension {
+    // every compressed message has its trailing empty block taken off, it goes back on at the end
+    private static final byte[] TAIL = {0, 0, (byte) 0xff, (byte) 0xff};
+    private static final String INFLATER = "permessage-deflate.inflater";
+    private static final String COMPRESSED = "permessage-deflate.compressed";
+    private static final String NO_CONTEXT_TAKEOVER = "permessage-deflate.noContextTakeover";
+
+    private static final byte CONTINUATION = 0x0;
+    // inflated bytes of the message so far, for the size limit
+    private static final String INFLATED = "permessage-deflate.inflated";
+
+    private final int maxMessageSize;
+
+    public PerMessageDeflate(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public String getName() {
+        return "permessage-deflate";
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return List.of();
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        if (frame.isControlFrame()) {
+            return frame;
+        }
+        // only the first frame of a message says whether it's compressed
+        boolean compressed;
+        if (frame.getOpcode() == CONTINUATION) {
+            compressed = Boolean.TRUE.equals(context.getProperties().get(COMPRESSED));
+        } else {
+            compressed = frame.isRsv1();
+            context.getProperties().put(COMPRESSED, compressed);
+            context.getProperties().put(INFLATED, 0);
+        }
+        if (!compressed) {
+            return frame;
+        }
+
+        Inflater inflater = (Inflater) context.getProperties().computeIfAbsent(INFLATER, k -> new Inflater(true));
+        int limit = maxMessageSize - (Integer) context.getProperties().getOrDefault(INFLATED, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(frame.getPayloadData().length * 4, limit));
+        try {
+            inflate(inflater, frame.getPayloadData(), out, limit);
+            if (frame.isFin()) {
+                inflate(inflater, TAIL, out, limit);
+                if (inflater.finished() || Boolean.TRUE.equals(context.getProperties().get(NO_CONTEXT_TAKEOVER))) {
+                    inflater.reset();
+                }
+            }
+        } catch (DataFormatException ex) {
+            throw new ProtocolException("Couldn't inflate message: " + ex.getMessage());
+        }
+
+        byte[] payload = out.toByteArray();
+        context.getProperties().put(INFLATED, maxMessageSize - limit + payload.length);
+        return Frame.builder(frame).rsv1(false).payloadData(payload).payloadLength(payload.length).build();
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        return frame;
+    }
+
+    @Override
+    public List<Parameter> onExtensionNegotiation(ExtensionContext context, List<Parameter> requestedParameters) {
+        // only used by servers
+        return requestedParameters;
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Parameter> responseParameters) {
+        // with server_no_context_takeover each message starts fresh, without it the server's
+        // window carries over and so must ours
+        for (Extension.Parameter parameter : responseParameters) {
+            if (parameter.getName().equals("server_no_context_takeover")) {
+                context.getProperties().put(NO_CONTEXT_TAKEOVER, true);
+            }
+        }
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        Object inflater = context.getProperties().remove(INFLATER);
+        if (inflater instanceof Inflater i) {
+            i.end();
+        }
+    }
+
+    private static void inflate(Inflater inflater, byte[] input, ByteArrayOutputStream out, int limit)
+            throws DataFormatException {
+        inflater.setInput(input);
+        byte[] buffer = new byte[4096];
+        // keep going while there's output, zlib can hold some back after taking all the input
+        int n;
+        while ((n = inflater.inflate(buffer)) > 0) {
+            if (out.size() + n > limit) {
+                throw new DataFormatException("Message inflates to more than the max message size");
+            }
+            out.write(buffer, 0, n);
+        }
+        if (inflater.needsDictionary()) {
+            throw new DataFormatException("Message needs a preset dictionary");
+        }
+    }
+}
@@ -10,14 +10,18 @@ import com.google.gson.JsonObject;
 
 import model.GameData;
 import model.ResponseException;
+import websocket.FrameCodec;
 import websocket.commands.UserGameCommand;
 import websocket.commands.UserGameCommand.GameSerializer;
+import websocket.messages.GameDelta;
 import websocket.messages.ServerMessage;
 
 import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 @ClientEndpoint
 public class WebSocketFacade extends Endpoint {
@@ -25,10 +29,18 @@ public class WebSocketFacade extends Endpoint {
     private Session session;
     private final NotificationHandler notificationHandler;
     private final Gson gson;
+    // send commands as binary frames (see FrameCodec), the server answers in binary too
+    private final boolean binaryFrames;
+    private final int compressThreshold;
 
+    // permessage-deflate is offered unless the client.websocket.deflate system property is false,
+    // binary frames are used if client.websocket.binary is true
     public WebSocketFacade(String url, NotificationHandler notificationHandler) throws ResponseException {
         this.url = url;
         this.notificationHandler = notificationHandler;
+        this.binaryFrames = Boolean.getBoolean("client.websocket.binary");
+        this.compressThreshold = Integer.getInteger("client.websocket.compressThreshold", 256);
+        boolean deflate = !"false".equalsIgnoreCase(System.getProperty("client.websocket.deflate"));
 
         // user makes a ws connection as a player or observer
         try {
@@ -40,7 +52,11 @@ public class WebSocketFacade extends Endpoint {
 
             WebSocketContainer container = ContainerProvider.getWebSocketContainer();
 
-            this.session = container.connectToServer(this, uri);
+            ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                    .extensions(deflate ? List.of(new PerMessageDeflate(container.getDefaultMaxTextMessageBufferSize()))
+                            : List.of())
+                    .build();
+            this.session = container.connectToServer(this, config, uri);
 
         } catch (IOException | URISyntaxException | DeploymentException ex) {
             throw new ResponseException(500, ex.getMessage());
@@ -50,12 +66,23 @@ public class WebSocketFacade extends Endpoint {
                 .registerTypeAdapter(ServerMessage.class, new ServerDeserializer()).create();
     }
 
-    @OnOpen
+    @Override
     public void onOpen(Session session, EndpointConfig endpointConfig) {
+        // text frames are JSON, binary ones are JSON encoded by FrameCodec
+        session.addMessageHandler(String.class, this::onMessage);
+        session.addMessageHandler(ByteBuffer.class, this::onMessage);
+    }
 
+    public void onMessage(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        try {
+            onMessage(FrameCodec.decode(bytes, session.getMaxTextMessageBufferSize()));
+        } catch (IllegalArgumentException ex) {
+            System.out.println("Error processing the ws message: " + ex.getMessage());
+        }
     }
 
-    @OnMessage
     public void onMessage(String message) {
         try {
             ServerMessage notification = gson.fromJson(message, ServerMessage.class);
@@ -65,6 +92,27 @@ public class WebSocketFacade extends Endpoint {
         }
     }
 
+    public void connect(String authToken, Integer gameID) throws ResponseException {
+        // joins the game's updates, after moves the server only sends what changed
+        try {
+            UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
+            command.setAcceptsDeltas(true);
+            sendMessage(command);
+        } catch (IOException ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
+    }
+
+    public void resync(String authToken, Integer gameID) throws ResponseException {
+        // asks for the whole game again when a delta didn't match the local copy
+        try {
+            UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.RESYNC, authToken, gameID);
+            sendMessage(command);
+        } catch (IOException ex) {
+            throw new ResponseException(500, ex.getMessage());
+        }
+    }
+
     public void leaveGame(String authToken, Integer gameID) throws ResponseException {
         // tells server you are leaving the game so it won't send you notifications
         try {
@@ -103,7 +151,13 @@ public class WebSocketFacade extends Endpoint {
         if (session != null && session.isOpen()) {
             // if it is, send the message
             String message = gson.toJson(command);
-            session.getBasicRemote().sendText(message);
+            if (binaryFrames) {
+                // with permessage-deflate the frame gets compressed anyway, don't do it twice
+                int threshold = session.getNegotiatedExtensions().isEmpty() ? compressThreshold : Integer.MAX_VALUE;
+                session.getBasicRemote().sendBinary(ByteBuffer.wrap(FrameCodec.encode(message, threshold)));
+            } else {
+                session.getBasicRemote().sendText(message);
+            }
         } else {
             throw new IOException("Websocket session isn't open");
         }
@@ -119,6 +173,10 @@ public class WebSocketFacade extends Endpoint {
             String type = jsonObject.get("serverMessageType").getAsString();
             ServerMessage.ServerMessageType messageType = ServerMessage.ServerMessageType.valueOf(type);
 
+            if (messageType == ServerMessage.ServerMessageType.GAME_DELTA) {
+                return new ServerMessage((GameDelta) context.deserialize(jsonObject.get("delta"), GameDelta.class));
+            }
+
             String message = null; // sets default to null
 
             if (jsonObject.has("message")) {
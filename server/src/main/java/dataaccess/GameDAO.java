@@ -1,5 +1,6 @@
 package dataaccess;
 
+import chess.ChessMove;
 import model.GameData;
 
 import java.util.List;
@@ -26,4 +27,11 @@ public interface GameDAO {
     // DataAccessException is thrown if the data can't be accessed (for any reason)
     void updateGame(GameData gameData) throws DataAccessException;
 
+    // Saves a move that was just made, gameData holds the game after the move.
+    // Rewrites the whole game unless the DAO can store the move on its own.
+    // DataAccessException is thrown if the data can't be accessed (for any reason)
+    default void recordMove(GameData gameData, ChessMove move) throws DataAccessException {
+        updateGame(gameData);
+    }
+
 }
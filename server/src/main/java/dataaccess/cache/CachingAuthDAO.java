@@ -0,0 +1,180 @@
+package dataaccess.cache;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+import model.AuthData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AuthDAO that remembers recent getAuth results in front of another AuthDAO (the database).
+ * Tokens that were found are kept for the TTL, and tokens that weren't found for the (shorter)
+ * negative TTL, so a client retrying a bad token doesn't hit the database every time either.
+ * <p>
+ * Every request checks its token, so lookups don't lock: entries sit in a ConcurrentHashMap
+ * with their expiry, and a hit only notes when the entry was used. Once the map grows a tenth
+ * past the max size, one caller drops the expired and least recently used tokens to get back
+ * down to it.
+ * <p>
+ * createAuth, deleteAuth and clear take effect in the cache right away. A lookup that raced
+ * with one of them doesn't keep what it read, since that may be the token from before.
+ */
+public class CachingAuthDAO implements AuthDAO {
+    private static final int DEFAULT_MAX_SIZE = 10_000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final AuthDAO delegate;
+    private final int maxSize;
+    // entries allowed past maxSize before evicting, so eviction's scan is paid once per batch
+    private final int evictionSlack;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // bumped by every create, delete and clear, see getAuth
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingAuthDAO(AuthDAO delegate) {
+        this(delegate, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    /**
+     * @param delegate          where auth tokens are stored
+     * @param maxSize           most tokens to remember, found or not (up to a tenth more between evictions)
+     * @param ttlMillis         how long a found token is remembered
+     * @param negativeTtlMillis how long a token that wasn't found is remembered, 0 to not remember
+     */
+    public CachingAuthDAO(AuthDAO delegate, int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.evictionSlack = maxSize / 10;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null);
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(authToken);
+        if (entry != null) {
+            if (now - entry.expiresAt < 0) {
+                entry.lastUsed = now;
+                hits.increment();
+                return entry.authData;
+            }
+            entries.remove(authToken, entry);
+        }
+
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        AuthData authData = delegate.getAuth(authToken);
+        long ttl = authData != null ? ttlNanos : negativeTtlNanos;
+        if (ttl > 0 && invalidations.get() == invalidationsBefore) {
+            Entry loaded = new Entry(authData, System.nanoTime() + ttl);
+            entries.put(authToken, loaded);
+            // a create, delete or clear between the check and the put, take back only what this put
+            if (invalidations.get() != invalidationsBefore) {
+                entries.remove(authToken, loaded);
+            }
+            evictIfFull();
+        }
+        return authData;
+    }
+
+    @Override
+    public void createAuth(AuthData authData) throws DataAccessException {
+        delegate.createAuth(authData);
+        // a lookup that read "not found" for the token before this mustn't store it
+        invalidations.incrementAndGet();
+        // also replaces a "not found" for the token
+        entries.put(authData.authToken(), new Entry(authData, System.nanoTime() + ttlNanos));
+        evictIfFull();
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        delegate.deleteAuth(authToken);
+        invalidations.incrementAndGet();
+        entries.remove(authToken);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxSize + evictionSlack || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            List<Candidate> live = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry> mapping : entries.entrySet()) {
+                Entry entry = mapping.getValue();
+                if (now - entry.expiresAt >= 0) {
+                    entries.remove(mapping.getKey(), entry);
+                } else {
+                    // lastUsed is copied, hits keep changing it while this sorts
+                    live.add(new Candidate(mapping.getKey(), entry, entry.lastUsed));
+                }
+            }
+            int excess = live.size() - maxSize;
+            if (excess > 0) {
+                live.sort(Comparator.comparingLong(Candidate::lastUsed));
+                for (int i = 0; i < excess; i++) {
+                    entries.remove(live.get(i).authToken(), live.get(i).entry());
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record Candidate(String authToken, Entry entry, long lastUsed) {
+    }
+
+    /**
+     * A getAuth result, authData is null for a token that wasn't found
+     */
+    private static final class Entry {
+        private final AuthData authData;
+        private final long expiresAt;
+        // written without locking on every hit, eviction only needs it roughly right
+        private long lastUsed;
+
+        private Entry(AuthData authData, long expiresAt) {
+            this.authData = authData;
+            this.expiresAt = expiresAt;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+}
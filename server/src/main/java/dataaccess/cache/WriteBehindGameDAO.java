@@ -0,0 +1,352 @@
+package dataaccess.cache;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameDAO that keeps the games being played in memory in front of another GameDAO (the
+ * database). Reads of a resident game never reach the database, and updates and moves are
+ * queued and written to the database in the background at least every flush interval, so the
+ * database is at most that far behind. createGame and clear go straight through.
+ * <p>
+ * Callers get their own copy of a game and hand back the changed copy, like with the SQL DAO,
+ * so one thread changing a game it loaded can't affect a game another thread is reading.
+ * Games nobody has touched for the idle timeout, with nothing left to write, are dropped from
+ * memory. Anything still queued is written when the DAO is closed or the JVM shuts down.
+ * <p>
+ * Writes the delegate rejects stay queued and are retried with a growing delay, a game isn't
+ * dropped from memory until its latest state is in the delegate. getFailedWrites counts them.
+ * Call start once the DAO is built to start the background flushing.
+ */
+public class WriteBehindGameDAO implements GameDAO, AutoCloseable {
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final int DEFAULT_MAX_PENDING = 256;
+    private static final long DEFAULT_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // longest wait between retries of a game whose writes keep failing
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final GameDAO delegate;
+    private final long flushIntervalMillis;
+    private final int maxPending;
+    private final long idleNanos;
+
+    private final Map<Integer, Resident> resident = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    public WriteBehindGameDAO(GameDAO delegate) {
+        this(delegate, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_PENDING, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * @param delegate            where games are stored for good
+     * @param flushIntervalMillis longest a write waits before it's sent to the delegate
+     * @param maxPending          queued writes that start a flush without waiting for the interval
+     * @param idleMillis          how long an unused game stays in memory
+     */
+    public WriteBehindGameDAO(GameDAO delegate, long flushIntervalMillis, int maxPending, long idleMillis) {
+        this.delegate = delegate;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPending = maxPending;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.shutdownHook = new Thread(this::flushQuietly, "game-write-behind-shutdown");
+    }
+
+    /**
+     * Starts flushing in the background and registers the shutdown hook
+     *
+     * @return this DAO
+     */
+    public WriteBehindGameDAO start() {
+        if (started.compareAndSet(false, true)) {
+            flusher.scheduleWithFixedDelay(this::flushAndEvict, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        // synchronized with flush so nothing queued before the clear gets written after it
+        pending.clear();
+        pendingWrites.set(0);
+        resident.clear();
+        delegate.clear();
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData gameData = load(gameID);
+        return gameData == null ? null : copyOf(gameData);
+    }
+
+    @Override
+    public GameData createGame(GameData gameData) throws DataAccessException {
+        // the delegate hands out the gameID, so this can't wait
+        GameData created = delegate.createGame(gameData);
+        resident.put(created.gameID(), new Resident(copyOf(created)));
+        return created;
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        // games in memory may be newer than what the delegate has written
+        List<GameData> games = delegate.listGames();
+        List<GameData> list = new ArrayList<>(games.size());
+        for (GameData gameData : games) {
+            Resident entry = resident.get(gameData.gameID());
+            list.add(entry != null ? copyOf(entry.gameData) : gameData);
+        }
+        return list;
+    }
+
+    @Override
+    public void updateGame(GameData gameData) throws DataAccessException {
+        // loading it keeps it in memory, the update replaces it right away anyway
+        if (load(gameData.gameID()) == null) {
+            throw new DataAccessException("Error: game doesn't exist");
+        }
+        GameData copy = copyOf(gameData);
+        resident.put(gameData.gameID(), new Resident(copy));
+        enqueue(gameData.gameID(), new Write(copy, null));
+    }
+
+    @Override
+    public void recordMove(GameData gameData, ChessMove move) throws DataAccessException {
+        GameData copy = copyOf(gameData);
+        resident.put(gameData.gameID(), new Resident(copy));
+        enqueue(gameData.gameID(), new Write(copy, move));
+    }
+
+    /**
+     * Writes everything queued to the delegate, including games waiting to retry
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    public int getResidentGames() {
+        return resident.size();
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites.get();
+    }
+
+    // writes the delegate has rejected, each retry that fails counts again
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Stops the background flushing and writes whatever is still queued
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            // already shutting down, the hook just flushes again
+        }
+    }
+
+    private void enqueue(int gameID, Write write) {
+        pending.compute(gameID, (id, writes) -> {
+            if (writes == null) {
+                writes = new Pending();
+            }
+            // counted in here so a flush taking these writes can't subtract them first
+            if (writes.add(write)) {
+                pendingWrites.incrementAndGet();
+            }
+            return writes;
+        });
+        if (pendingWrites.get() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushAndEvict);
+            } catch (RuntimeException ex) {
+                // closed, close() does the last flush
+            }
+        }
+    }
+
+    private synchronized void flush(boolean force) {
+        flushRequested.set(false);
+        long now = System.nanoTime();
+        for (Integer gameID : new ArrayList<>(pending.keySet())) {
+            Pending writes = pending.get(gameID);
+            if (writes == null || (!force && now < writes.retryAt)) {
+                continue;
+            }
+            writes = pending.remove(gameID);
+            if (writes != null) {
+                pendingWrites.addAndGet(-writes.writes.size());
+                write(gameID, writes);
+            }
+        }
+    }
+
+    private GameData load(int gameID) throws DataAccessException {
+        Resident entry = resident.get(gameID);
+        if (entry == null) {
+            GameData loaded = delegate.getGame(gameID);
+            if (loaded == null) {
+                return null;
+            }
+            // a write that came in while loading is newer than what was loaded
+            Resident existing = resident.putIfAbsent(gameID, new Resident(loaded));
+            entry = existing != null ? existing : resident.get(gameID);
+            if (entry == null) {
+                return loaded;
+            }
+        }
+        entry.touch();
+        return entry.gameData;
+    }
+
+    private void write(int gameID, Pending writes) {
+        int done = 0;
+        try {
+            for (Write write : writes.writes) {
+                if (write.move != null) {
+                    delegate.recordMove(write.gameData, write.move);
+                } else {
+                    delegate.updateGame(write.gameData);
+                }
+                done++;
+            }
+        } catch (DataAccessException ex) {
+            // the latest state is enough to catch the delegate up, even without the moves
+            GameData latest = writes.writes.get(writes.writes.size() - 1).gameData;
+            try {
+                delegate.updateGame(latest);
+                return;
+            } catch (DataAccessException retryEx) {
+                System.err.println("couldn't write game " + gameID + ": " + retryEx.getMessage());
+            }
+
+            // keep what's left, the copy in memory is the only place those moves are
+            List<Write> left = new ArrayList<>(writes.writes.subList(done, writes.writes.size()));
+            failedWrites.addAndGet(left.size());
+            Pending retry = new Pending();
+            retry.writes.addAll(left);
+            retry.attempts = writes.attempts + 1;
+            long delayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, flushIntervalMillis << Math.min(retry.attempts, 20));
+            retry.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            System.err.println("retrying " + left.size() + " writes for game " + gameID + " in " + delayMillis + "ms");
+            pendingWrites.addAndGet(left.size());
+            // anything queued since goes after the retried writes
+            pending.merge(gameID, retry, (newer, failed) -> {
+                failed.writes.addAll(newer.writes);
+                return failed;
+            });
+        }
+    }
+
+    private synchronized void flushAndEvict() {
+        // synchronized with flush, a game being written isn't in pending but isn't written yet either
+        try {
+            flush(false);
+        } catch (RuntimeException ex) {
+            System.err.println("game write-behind flush failed: " + ex.getMessage());
+        }
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Integer, Resident>> iterator = resident.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Resident> entry = iterator.next();
+            if (now - entry.getValue().lastAccess > idleNanos && !pending.containsKey(entry.getKey())) {
+                // only if the game wasn't written again since we looked
+                resident.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            System.err.println("game write-behind flush failed: " + ex.getMessage());
+        }
+    }
+
+    private static GameData copyOf(GameData gameData) {
+        // GameCodec keeps everything a ChessGame has, and it's the cheapest way to copy one
+        ChessGame game = gameData.game() == null ? null : GameCodec.decode(GameCodec.encode(gameData.game()));
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), game);
+    }
+
+    private static final class Resident {
+        private final GameData gameData;
+        private volatile long lastAccess;
+
+        private Resident(GameData gameData) {
+            this.gameData = gameData;
+            this.lastAccess = System.nanoTime();
+        }
+
+        private void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+
+    /**
+     * A full update of the game (move is null) or a move with the game after it
+     */
+    private record Write(GameData gameData, ChessMove move) {
+    }
+
+    private static final class Pending {
+        private final List<Write> writes = new ArrayList<>();
+        private int attempts;
+        // nanoTime before which a failed game isn't tried again, except by flush()
+        private long retryAt;
+
+        // false if the write replaced one instead of adding to the queue
+        private boolean add(Write write) {
+            // a full update makes an update right before it pointless
+            int last = writes.size() - 1;
+            if (write.move == null && last >= 0 && writes.get(last).move == null) {
+                writes.set(last, write);
+                return false;
+            }
+            writes.add(write);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package dataaccess.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of database connections. Connections handed out are proxies whose close()
+ * puts the real connection back in the pool, so the DAOs keep using try-with-resources
+ * exactly like they did with DriverManager.
+ * <p>
+ * At most maxSize connections exist at once, a caller that finds them all in use waits up
+ * to the acquire timeout and then gets a SQLTimeoutException. Idle connections are reused
+ * most recently returned first, and a background thread closes the ones idle longer than
+ * the idle timeout as long as at least minIdle stay open. Once prefill has been called the
+ * same thread also opens connections to get back up to minIdle.
+ * <p>
+ * Statements come straight from the driver so using them costs nothing extra. The ones a loan
+ * leaves open are closed when it's returned, after that they can't lead back to the connection.
+ * A connection closed through a statement's getConnection is dropped when the loan comes back.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Point in time view of the pool
+     *
+     * @param total     connections open, idle or in use
+     * @param idle      connections waiting in the pool
+     * @param active    connections handed out
+     * @param waiting   threads waiting for a connection
+     * @param acquired  connections handed out since the pool started
+     * @param created   physical connections opened since the pool started
+     * @param timeouts  times a caller gave up waiting for a connection
+     * @param waitNanos total time callers spent waiting for a connection
+     */
+    public record Metrics(int total, int idle, int active, int waiting, long acquired, long created,
+                          long timeouts, long waitNanos) {
+    }
+
+    // a connection returned this recently is assumed to still work, skip the validation query
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final ConnectionFactory factory;
+    private final int minIdle;
+    private final long idleTimeoutNanos;
+    private final long acquireTimeoutMillis;
+    private final String validationQuery;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final ScheduledExecutorService reaper;
+    // set by prefill, after that the reaper keeps minIdle connections open
+    private volatile boolean keepFilled;
+
+    /**
+     * @param factory              opens physical connections
+     * @param minIdle              idle connections to keep open even past the idle timeout
+     * @param maxSize              most connections open at once
+     * @param idleTimeoutMillis    how long an idle connection is kept before it's closed
+     * @param acquireTimeoutMillis how long getConnection waits when every connection is in use
+     * @param validationQuery      run on a connection that sat idle before handing it out,
+     *                             null to use Connection.isValid instead
+     */
+    public ConnectionPool(ConnectionFactory factory, int minIdle, int maxSize, long idleTimeoutMillis,
+                          long acquireTimeoutMillis, String validationQuery) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("need 0 <= minIdle <= maxSize and maxSize >= 1");
+        }
+        this.factory = factory;
+        this.minIdle = minIdle;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationQuery = validationQuery == null || validationQuery.isBlank() ? null : validationQuery;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        reaper.scheduleWithFixedDelay(this::closeIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a connection from the pool, opening one if none are idle. Close it to give it back.
+     *
+     * @throws SQLTimeoutException if no connection frees up within the acquire timeout
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("no database connection free after " + acquireTimeoutMillis + "ms");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted waiting for a database connection", ex);
+        }
+        waitNanos.add(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isAlive(pooled)) {
+                    break;
+                }
+                discard(pooled.connection);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.open());
+                total.incrementAndGet();
+                created.increment();
+            }
+            acquired.increment();
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens connections until minIdle are waiting in the pool, and has the reaper keep it that
+     * way. Call once the database exists, connections are opened with its catalog.
+     *
+     * @throws SQLException if a connection can't be opened
+     */
+    public void prefill() throws SQLException {
+        keepFilled = true;
+        // a permit while opening keeps the pool within maxSize
+        while (idle.size() < minIdle && !reaper.isShutdown() && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = new PooledConnection(factory.open());
+                total.incrementAndGet();
+                created.increment();
+                idle.addFirst(pooled);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    public Metrics getMetrics() {
+        int idleCount = idle.size();
+        int totalCount = total.get();
+        return new Metrics(totalCount, idleCount, totalCount - idleCount, permits.getQueueLength(),
+                acquired.sum(), created.sum(), timeouts.sum(), waitNanos.sum());
+    }
+
+    /**
+     * Closes every idle connection and stops the reaper. Connections still in use are closed
+     * for real when they're returned.
+     */
+    public void shutdown() {
+        reaper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled.connection);
+        }
+    }
+
+    private boolean isAlive(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.returnedAt < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            if (validationQuery == null) {
+                return pooled.connection.isValid(1);
+            }
+            try (var statement = pooled.connection.createStatement()) {
+                statement.setQueryTimeout(1);
+                statement.execute(validationQuery);
+                return true;
+            }
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        // put the connection back the way getConnection handed it out
+        try {
+            Connection connection = pooled.connection;
+            if (connection.isClosed() || reaper.isShutdown()) {
+                discard(connection);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                pooled.returnedAt = System.nanoTime();
+                idle.addFirst(pooled);
+            }
+        } catch (SQLException ex) {
+            discard(pooled.connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void closeIdle() {
+        // the oldest returned connections are at the end of the deque
+        long now = System.nanoTime();
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.returnedAt > idleTimeoutNanos && idle.remove(pooled)) {
+                discard(pooled.connection);
+            }
+        }
+        if (keepFilled) {
+            try {
+                prefill();
+            } catch (SQLException ex) {
+                System.err.println("couldn't open pooled connections: " + ex.getMessage());
+            }
+        }
+    }
+
+    private void discard(Connection connection) {
+        total.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // it's going away either way
+        }
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handout(pooled));
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private volatile long returnedAt;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.returnedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * One loan of a pooled connection. Everything goes to the real connection except close,
+     * which closes the loan's statements and returns it, and once it's returned the loan can't
+     * be used anymore.
+     */
+    private final class Handout implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean returned;
+
+        private Handout(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        closeStatements();
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + pooled.connection;
+                }
+                case "unwrap" -> throw new SQLException("pooled connections can't be unwrapped");
+                default -> {
+                    if (returned) {
+                        throw new SQLException("connection was already returned to the pool");
+                    }
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (result instanceof Statement statement) {
+                statements.add(statement);
+            }
+            return result;
+        }
+
+        private void closeStatements() {
+            // most are closed already by try-with-resources
+            for (Statement statement : statements) {
+                try {
+                    if (!statement.isClosed()) {
+                        statement.close();
+                    }
+                } catch (SQLException ex) {
+                    // the connection is checked on the way back in anyway
+                }
+            }
+            statements.clear();
+        }
+    }
+}
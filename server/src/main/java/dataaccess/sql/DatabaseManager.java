@@ -10,6 +10,9 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final Properties PROPERTIES;
+    // the server shuts the pool down when it stops, the next one to need it gets a new one
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -22,27 +25,63 @@ public class DatabaseManager {
                 }
                 Properties props = new Properties();
                 props.load(propStream);
+                PROPERTIES = props;
                 DATABASE_NAME = props.getProperty("db.name");
                 USER = props.getProperty("db.user");
                 PASSWORD = props.getProperty("db.password");
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // prepare statements on the server and have the driver keep them per connection, so a
+                // pooled connection only parses each of the DAOs' SQL strings once
+                boolean serverPrepare = Boolean.parseBoolean(props.getProperty("db.serverPrepStmts", "true"));
+                int cacheSize = Integer.parseInt(props.getProperty("db.prepStmtCacheSize", "250"));
+                CONNECTION_URL = String.format(
+                        "jdbc:mysql://%s:%d?useServerPrepStmts=%b&cachePrepStmts=%b&prepStmtCacheSize=%d&prepStmtCacheSqlLimit=2048",
+                        host, port, serverPrepare, cacheSize > 0, Math.max(cacheSize, 1));
+
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    private static ConnectionPool pool() {
+        // every getConnection comes through here, only creating the pool takes the lock
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    // connections are only opened when asked for, so the database doesn't have to exist yet
+                    current = new ConnectionPool(DatabaseManager::openConnection,
+                            Integer.parseInt(getProperty("db.pool.minIdle", "2")),
+                            Integer.parseInt(getProperty("db.pool.maxSize", "10")),
+                            Long.parseLong(getProperty("db.pool.idleTimeoutMillis", "600000")),
+                            Long.parseLong(getProperty("db.pool.acquireTimeoutMillis", "5000")),
+                            getProperty("db.pool.validationQuery", null));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Gets an optional setting from db.properties.
+     */
+    static String getProperty(String name, String defaultValue) {
+        return PROPERTIES.getProperty(name, defaultValue);
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -51,9 +90,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Gets a pooled connection to the database with the catalog set based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * be short-lived, and you must close the connection when you are done with it
+     * so it goes back to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -64,14 +104,41 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return pool().getConnection();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
+    /**
+     * Connection pool usage, see ConnectionPool.Metrics.
+     */
+    public static ConnectionPool.Metrics getPoolMetrics() {
+        return pool().getMetrics();
+    }
+
+    /**
+     * Closes the pool's connections and stops its reaper. Connections still handed out are
+     * closed when they come back.
+     */
+    public static synchronized void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        try {
+            conn.setCatalog(DATABASE_NAME);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
     static void configureDatabase(String[] createStatements) throws DataAccessException {
         // ensure DB exists by attempting to create it
         DatabaseManager.createDatabase();
@@ -85,5 +152,11 @@ public class DatabaseManager {
         } catch (SQLException ex) {
             throw new DataAccessException("Error: creating tables " + ex.getMessage());
         }
+        // the database exists now, open minIdle connections before the first request needs one
+        try {
+            pool().prefill();
+        } catch (SQLException ex) {
+            throw new DataAccessException("Error: opening connections " + ex.getMessage());
+        }
     }
 }
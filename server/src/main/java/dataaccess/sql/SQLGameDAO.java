@@ -10,17 +10,47 @@ import dataaccess.GameDAO;
 import model.GameData;
 import chess.*;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SQLGameDAO implements GameDAO {
+    // how the chess game gets stored. JSON and FEN go in the game TEXT column, BINARY (see GameCodec)
+    // in the gameState BLOB column. Any of them can be read back no matter which is set.
+    public enum StorageFormat {
+        JSON,
+        BINARY,
+        FEN
+    }
+
+    // FEN has no field for a game that's over (e.g. after a resignation), so it's added after the FEN
+    private static final String FEN_GAME_OVER = ";over";
+
+    // moves go in the game_moves log as they're made, the game row itself (the snapshot) only
+    // gets rewritten every this many plies. Reading a game replays the moves made since its snapshot.
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+
     private final Gson serializer;
-    // constructor to initialize dao and configure DB
+    private final StorageFormat format;
+    private final int snapshotInterval;
+
+    // constructor to initialize dao and configure DB, storage format comes from db.gameFormat in db.properties
     public SQLGameDAO() throws DataAccessException {
+        this(StorageFormat.valueOf(DatabaseManager.getProperty("db.gameFormat", "BINARY").toUpperCase()));
+    }
+
+    public SQLGameDAO(StorageFormat format) throws DataAccessException {
         this.serializer = createSerializer();
+        this.format = format;
+        this.snapshotInterval = Math.max(1, Integer.parseInt(
+                DatabaseManager.getProperty("db.snapshotInterval", String.valueOf(DEFAULT_SNAPSHOT_INTERVAL))));
         // array of sql statements responsible for setting up the DB and its tables
         String[] createStatements = {
             // handle creating gameData table if it doesn't already exist
@@ -30,49 +60,112 @@ public class SQLGameDAO implements GameDAO {
             `whiteUsername` varchar(255),
             `blackUsername` varchar(255),
             `gameName` varchar(255) NOT NULL,
-            `game` TEXT NOT NULL,
+            `game` TEXT,
+            `gameState` BLOB,
+            `ply` int NOT NULL DEFAULT 0,
             PRIMARY KEY (gameID)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+            // append only log of the moves made in each game, move is a PackedMove
+            """
+            CREATE TABLE IF NOT EXISTS game_moves (
+            `gameID` int NOT NULL,
+            `ply` int NOT NULL,
+            `move` int NOT NULL,
+            `createdAt` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+            PRIMARY KEY (gameID, ply),
+            FOREIGN KEY (gameID) REFERENCES games(gameID) ON DELETE CASCADE
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
             """
         };
         DatabaseManager.configureDatabase(createStatements);
+        addMissingColumns();
+    }
+
+    private void addMissingColumns() throws DataAccessException {
+        // games tables made before the binary format only have the (required) game column,
+        // and ones made before the move log don't have the snapshot's ply
+        try (var conn = DatabaseManager.getConnection()) {
+            if (!columnExists(conn, "gameState")) {
+                try (var prepStatement = conn.prepareStatement(
+                        "ALTER TABLE games ADD COLUMN `gameState` BLOB, MODIFY COLUMN `game` TEXT NULL")) {
+                    prepStatement.executeUpdate();
+                }
+            }
+            if (!columnExists(conn, "ply")) {
+                try (var prepStatement = conn.prepareStatement(
+                        "ALTER TABLE games ADD COLUMN `ply` int NOT NULL DEFAULT 0")) {
+                    prepStatement.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Error: unable to add missing games columns " + ex.getMessage());
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String column) throws SQLException {
+        var statement = "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = 'games' AND column_name = ?";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setString(1, column);
+            try (var rs = prepStatement.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
     }
 
     @Override
     public void clear() throws DataAccessException {
         // clear all userData in the userData table, but not the table itself
-        var statement = "DELETE FROM games";
-        executeUpdate(statement);
+        executeUpdate("DELETE FROM game_moves");
+        executeUpdate("DELETE FROM games");
     }
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException{
         // retrieve gameData given a gameID from the DB
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID=?";
+            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameState, ply FROM games WHERE gameID=?";
+            GameData gameData = null;
+            int snapshotPly = 0;
             try (var prepStatement = conn.prepareStatement(statement)) {
                 // bind the username parameter
                 prepStatement.setInt(1, gameID);
 
                 try (var rs = prepStatement.executeQuery()) {
                     if (rs.next()) {
-                        // return userData object from the result set
-                        return readGame(rs);
+                        // userData object from the result set
+                        gameData = readGame(rs);
+                        snapshotPly = rs.getInt("ply");
+                    }
+                }
+            }
+            if (gameData == null) {
+                return null;
+            }
+
+            // bring the snapshot up to date with the moves logged after it
+            statement = "SELECT move FROM game_moves WHERE gameID=? AND ply>? ORDER BY ply";
+            try (var prepStatement = conn.prepareStatement(statement)) {
+                prepStatement.setInt(1, gameID);
+                prepStatement.setInt(2, snapshotPly);
+                try (var rs = prepStatement.executeQuery()) {
+                    while (rs.next()) {
+                        replayMove(gameData, rs.getInt("move"));
                     }
                 }
             }
+            return gameData;
         } catch (SQLException ex) {
             throw new DataAccessException("Error: unable to get gameData " + ex.getMessage());
         }
-        // no matching auth token found, return null
-        return null;
     }
 
     @Override
     public GameData createGame(GameData gameData) throws DataAccessException {
         // Create a new user in the DB
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "INSERT INTO games (whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?)";
+            var statement = "INSERT INTO games (whiteUsername, blackUsername, gameName, game, gameState) VALUES (?, ?, ?, ?, ?)";
             try (var prepStatement = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
                 String whiteUser = gameData.whiteUsername();
                 String blackUser = gameData.blackUsername() != null ? gameData.blackUsername() : null;
@@ -89,8 +182,8 @@ public class SQLGameDAO implements GameDAO {
                 // bind gameName
                 prepStatement.setString(3, gameData.gameName());
 
-                // bind game (first store it as json)
-                prepStatement.setString(4, serializer.toJson(gameData.game()));
+                // bind game and gameState, only the one for the storage format gets set
+                bindGame(prepStatement, 4, gameData.game());
 
                 int affectedRows = prepStatement.executeUpdate();
                 if (affectedRows > 0) {
@@ -110,41 +203,188 @@ public class SQLGameDAO implements GameDAO {
     @Override
     public List<GameData> listGames() throws DataAccessException{
         // Retrieve all games.
-        List<GameData> list = new ArrayList<>();
+        Map<Integer, GameData> games = new LinkedHashMap<>();
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games";
+            var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameState FROM games";
+            try (var prepStatement = conn.prepareStatement(statement)) {
+                try (var rs = prepStatement.executeQuery()) {
+                    while (rs.next()) {
+                        GameData gameData = readGame(rs);
+                        games.put(gameData.gameID(), gameData);
+                    }
+                }
+            }
+
+            // every game's moves since its snapshot, in one query
+            statement = "SELECT m.gameID, m.move FROM game_moves m JOIN games g ON m.gameID = g.gameID " +
+                    "WHERE m.ply > g.ply ORDER BY m.gameID, m.ply";
             try (var prepStatement = conn.prepareStatement(statement)) {
                 try (var rs = prepStatement.executeQuery()) {
                     while (rs.next()) {
-                        list.add(readGame(rs));
+                        GameData gameData = games.get(rs.getInt("gameID"));
+                        if (gameData != null) {
+                            replayMove(gameData, rs.getInt("move"));
+                        }
                     }
                 }
             }
         } catch (Exception ex) {
             throw new DataAccessException("Error: unable to list games " + ex.getMessage());
         }
-        return list;
+        return new ArrayList<>(games.values());
     }
 
     @Override
     public void updateGame(GameData gameData) throws DataAccessException{
         // update an existing game in the DB
         try (var conn = DatabaseManager.getConnection()) {
-            var statement = "UPDATE games SET whiteUsername=?, blackUsername=?, gameName=?, game=? WHERE gameID=?";
-            try (var prepStatement = conn.prepareStatement(statement)) {
-                prepStatement.setString(1, gameData.whiteUsername());
-                prepStatement.setString(2, gameData.blackUsername());
-                prepStatement.setString(3, gameData.gameName());
-                prepStatement.setString(4, serializer.toJson(gameData.game()));
-                prepStatement.setInt(5, gameData.gameID());
+            // one transaction with the game row locked, like recordMove, so no move gets logged
+            // between working out the snapshot's ply and writing it
+            conn.setAutoCommit(false);
+            try {
+                updateGame(conn, gameData);
+                conn.commit();
+            } catch (SQLException | DataAccessException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Error: unable to update game " + ex.getMessage());
+        }
+    }
 
-                int rowsUpdated = prepStatement.executeUpdate();
-                if (rowsUpdated == 0) {
+    private void updateGame(Connection conn, GameData gameData) throws SQLException, DataAccessException {
+        var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameState, ply FROM games " +
+                "WHERE gameID=? FOR UPDATE";
+        GameData stored;
+        int snapshotPly;
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setInt(1, gameData.gameID());
+            try (var rs = prepStatement.executeQuery()) {
+                if (!rs.next()) {
                     throw new DataAccessException("Error: game doesn't exist");
                 }
+                stored = readGame(rs);
+                snapshotPly = rs.getInt("ply");
+            }
+        }
+
+        // the new snapshot holds the moves logged up to the last ply whose position it has. A
+        // copy read before later moves were logged leaves those to be replayed on top of it
+        int heldPly = samePosition(stored.game(), gameData.game()) ? snapshotPly : -1;
+        int lastPly = snapshotPly;
+        statement = "SELECT ply, move FROM game_moves WHERE gameID=? AND ply>? ORDER BY ply";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setInt(1, gameData.gameID());
+            prepStatement.setInt(2, snapshotPly);
+            try (var rs = prepStatement.executeQuery()) {
+                while (rs.next()) {
+                    replayMove(stored, rs.getInt("move"));
+                    lastPly = rs.getInt("ply");
+                    if (samePosition(stored.game(), gameData.game())) {
+                        heldPly = lastPly;
+                    }
+                }
+            }
+        }
+        // no logged position matches, the game is ahead of the log (moves that couldn't be
+        // logged) and becomes the snapshot for all of it
+        if (heldPly < 0) {
+            heldPly = lastPly;
+        }
+
+        statement = "UPDATE games SET whiteUsername=?, blackUsername=?, gameName=?, game=?, gameState=?, ply=? " +
+                "WHERE gameID=?";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setString(1, gameData.whiteUsername());
+            prepStatement.setString(2, gameData.blackUsername());
+            prepStatement.setString(3, gameData.gameName());
+            bindGame(prepStatement, 4, gameData.game());
+            prepStatement.setInt(6, heldPly);
+            prepStatement.setInt(7, gameData.gameID());
+            prepStatement.executeUpdate();
+        }
+    }
+
+    private static boolean samePosition(ChessGame a, ChessGame b) {
+        // gameOver is left out, resigning changes it without a move
+        return a.getTeamTurn() == b.getTeamTurn() && a.getBoard().equals(b.getBoard());
+    }
+
+    @Override
+    public void recordMove(GameData gameData, ChessMove move) throws DataAccessException {
+        // append the move to the log, only rewriting the game row when a snapshot is due
+        int packed = PackedMove.fromChessMove(move);
+        if (packed == PackedMove.NONE) {
+            throw new DataAccessException("Error: move " + move + " isn't on the board");
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            // one transaction, so the log and the snapshot can't end up out of step
+            conn.setAutoCommit(false);
+            try {
+                recordMove(conn, gameData, packed);
+                conn.commit();
+            } catch (SQLException | DataAccessException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException ex) {
-            throw new DataAccessException("Error: unable to update game " + ex.getMessage());
+            throw new DataAccessException("Error: unable to record move " + ex.getMessage());
+        }
+    }
+
+    private void recordMove(Connection conn, GameData gameData, int packed) throws SQLException, DataAccessException {
+        // locking the game row makes a second writer on the game wait, so it sees this ply
+        // instead of trying to insert it again
+        var statement = "SELECT gameID FROM games WHERE gameID=? FOR UPDATE";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setInt(1, gameData.gameID());
+            try (var rs = prepStatement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new DataAccessException("Error: game doesn't exist");
+                }
+            }
+        }
+
+        int ply;
+        statement = "SELECT COALESCE(MAX(ply), 0) + 1 FROM game_moves WHERE gameID=?";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setInt(1, gameData.gameID());
+            try (var rs = prepStatement.executeQuery()) {
+                rs.next();
+                ply = rs.getInt(1);
+            }
+        }
+
+        statement = "INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)";
+        try (var prepStatement = conn.prepareStatement(statement)) {
+            prepStatement.setInt(1, gameData.gameID());
+            prepStatement.setInt(2, ply);
+            prepStatement.setInt(3, packed);
+            prepStatement.executeUpdate();
+        }
+
+        if (ply % snapshotInterval == 0) {
+            statement = "UPDATE games SET game=?, gameState=?, ply=? WHERE gameID=?";
+            try (var prepStatement = conn.prepareStatement(statement)) {
+                bindGame(prepStatement, 1, gameData.game());
+                prepStatement.setInt(3, ply);
+                prepStatement.setInt(4, gameData.gameID());
+                prepStatement.executeUpdate();
+            }
+        }
+    }
+
+    private static void replayMove(GameData gameData, int move) throws SQLException {
+        // makes a logged move on the game read from the snapshot, quietly (makeMove prints the board)
+        try {
+            gameData.game().applyMove(PackedMove.toChessMove(move));
+        } catch (InvalidMoveException ex) {
+            throw new SQLException("move log for game " + gameData.gameID() + " doesn't replay: " + ex.getMessage());
         }
     }
 
@@ -155,12 +395,57 @@ public class SQLGameDAO implements GameDAO {
         String blackUsername = rs.getString("blackUsername");
         String gameName = rs.getString("gameName");
 
-        // deserialize the chess game
-        ChessGame game = serializer.fromJson((rs.getString("game")), ChessGame.class);
+        // deserialize the chess game from whichever column has it
+        ChessGame game;
+        byte[] gameState = rs.getBytes("gameState");
+        if (gameState != null) {
+            try {
+                game = GameCodec.decode(gameState);
+            } catch (IllegalArgumentException ex) {
+                throw new SQLException("unreadable game state for game " + gameID + ": " + ex.getMessage());
+            }
+        } else {
+            String gameText = rs.getString("game");
+            if (gameText != null && !gameText.startsWith("{")) {
+                game = readFen(gameID, gameText);
+            } else {
+                game = serializer.fromJson(gameText, ChessGame.class);
+            }
+        }
 
         return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
     }
 
+    private void bindGame(PreparedStatement prepStatement, int index, ChessGame game) throws SQLException {
+        // binds the game column at index and the gameState column right after it
+        switch (format) {
+            case BINARY -> {
+                prepStatement.setNull(index, Types.VARCHAR);
+                prepStatement.setBytes(index + 1, GameCodec.encode(game));
+            }
+            case FEN -> {
+                prepStatement.setString(index, game.toFen() + (game.isGameOver() ? FEN_GAME_OVER : ""));
+                prepStatement.setNull(index + 1, Types.BLOB);
+            }
+            case JSON -> {
+                prepStatement.setString(index, serializer.toJson(game));
+                prepStatement.setNull(index + 1, Types.BLOB);
+            }
+        }
+    }
+
+    private static ChessGame readFen(int gameID, String gameText) throws SQLException {
+        boolean gameOver = gameText.endsWith(FEN_GAME_OVER);
+        String fen = gameOver ? gameText.substring(0, gameText.length() - FEN_GAME_OVER.length()) : gameText;
+        try {
+            ChessGame game = ChessGame.fromFen(fen);
+            game.setGameOver(gameOver);
+            return game;
+        } catch (IllegalArgumentException ex) {
+            throw new SQLException("unreadable FEN for game " + gameID + ": " + ex.getMessage());
+        }
+    }
+
     private void executeUpdate(String statement) throws DataAccessException {
         // helps with executing sql update statements
         try (var conn = DatabaseManager.getConnection()) {
@@ -172,7 +457,8 @@ public class SQLGameDAO implements GameDAO {
         }
     }
 
-    private static Gson createSerializer() {
+    // public so the benchmarks can measure the same serializer the DAO uses
+    public static Gson createSerializer() {
         GsonBuilder gsonBuilder = new GsonBuilder();
 
         gsonBuilder.registerTypeAdapter(ChessPiece.class,
@@ -184,22 +470,22 @@ public class SQLGameDAO implements GameDAO {
 
                         switch (pieceType) {
                             case "PAWN":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.PAWN);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.PAWN);
                                 break;
                             case "ROOK":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.ROOK);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.ROOK);
                                 break;
                             case "KNIGHT":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.KNIGHT);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.KNIGHT);
                                 break;
                             case "BISHOP":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.BISHOP);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.BISHOP);
                                 break;
                             case "KING":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.KING);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.KING);
                                 break;
                             case "QUEEN":
-                                chessPiece = new ChessPiece(pieceColor, ChessPiece.PieceType.QUEEN);
+                                chessPiece = ChessPiece.of(pieceColor, ChessPiece.PieceType.QUEEN);
                                 break;
                             default:
                         }
@@ -2,11 +2,16 @@ package server;
 
 import com.google.gson.Gson;
 import dataaccess.*;
+import dataaccess.cache.CachingAuthDAO;
+import dataaccess.cache.WriteBehindGameDAO;
 import dataaccess.sql.*;
 import model.*;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import server.websocket.WebSocketHandler;
 import service.*;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import java.net.HttpURLConnection;
 
@@ -18,19 +23,30 @@ public class Server {
     private final UserService userService;
     private final GameService gameService;
     private final AuthDAO authDAO;
+    private final WriteBehindGameDAO gameDAO;
 
     private final WebSocketHandler webSocketHandler;
+    private final boolean virtualThreads;
 
     private final int unAuth;
     private final int internalErr;
 
     private static final Gson SERIALIZER = new Gson();
 
+    // virtual threads are off unless the server.virtualThreads system property is true
     public Server() {
+        this(Boolean.getBoolean("server.virtualThreads"));
+    }
+
+    // with virtualThreads, HTTP requests and websocket commands each run on their own virtual thread
+    public Server(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
         try {
-            this.authDAO = new SQLAuthDAO();
+            // every request checks its token, remember them instead of asking the database each time
+            this.authDAO = new CachingAuthDAO(new SQLAuthDAO());
             UserDAO userDAO = new SQLUserDAO();
-            GameDAO gameDAO = new SQLGameDAO();
+            // games being played stay in memory, the database gets their changes in the background
+            this.gameDAO = new WriteBehindGameDAO(new SQLGameDAO()).start();
 
             // initialize services
             this.clearService = new ClearService(userDAO, authDAO, gameDAO);
@@ -38,7 +54,7 @@ public class Server {
             this.gameService = new GameService(gameDAO, authDAO);
 
             // add websocket functionality
-            webSocketHandler = new WebSocketHandler(gameService);
+            webSocketHandler = new WebSocketHandler(gameService, virtualThreads);
 
             this.unAuth = HttpURLConnection.HTTP_UNAUTHORIZED;
             this.internalErr = HttpURLConnection.HTTP_INTERNAL_ERROR;
@@ -48,6 +64,15 @@ public class Server {
     }
 
     public int run(int desiredPort) {
+        // jetty negotiates permessage-deflate, this can turn it off afterwards
+        WebSocketCompression compression = new WebSocketCompression();
+
+        // Spark's factory is static, so set it either way in case an earlier server changed it.
+        // QueuedThreadPool's defaults are what spark uses when it isn't given a pool
+        EmbeddedJettyFactory jettyFactory = new EmbeddedJettyFactory(compression);
+        jettyFactory.withThreadPool(virtualThreads ? new VirtualThreadPool() : new QueuedThreadPool());
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), jettyFactory);
+
         Spark.port(desiredPort);
 
         Spark.staticFiles.location("web");
@@ -68,12 +93,21 @@ public class Server {
         Spark.init();
 
         Spark.awaitInitialization();
+        // permessage-deflate stays on unless the server.websocket.deflate system property is false
+        if ("false".equalsIgnoreCase(System.getProperty("server.websocket.deflate"))
+                && !compression.disableDeflate("/ws")) {
+            System.out.println("Couldn't find the websocket endpoint, permessage-deflate is still on");
+        }
         return Spark.port();
     }
 
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        webSocketHandler.stop();
+        gameDAO.close();
+        // after the write-behind flush, that still needs connections
+        DatabaseManager.shutdownPool();
     }
 
     // clear all data from db (or ram memory)
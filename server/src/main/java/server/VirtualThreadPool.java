@@ -0,0 +1,68 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty thread pool that runs every task on a new virtual thread instead of a bounded set of
+ * platform threads. A request blocked on the database then only parks its virtual thread,
+ * and the other requests keep going no matter how many are waiting.
+ * <p>
+ * Jetty 9 doesn't know about virtual threads, so this only implements what it needs from a
+ * pool: running tasks (tryExecute always succeeds, there's no limit to wait on) and join.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool, TryExecutor {
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("jetty-virtual-", 0).factory();
+    private final AtomicInteger running = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    @Override
+    public void execute(Runnable task) {
+        threadFactory.newThread(() -> {
+            running.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).start();
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task) {
+        execute(task);
+        return true;
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        // threads aren't kept around between tasks
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        stopped.countDown();
+        super.doStop();
+    }
+}
@@ -0,0 +1,74 @@
+package server;
+
+import org.eclipse.jetty.http.pathmap.MatchedResource;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.websocket.server.NativeWebSocketConfiguration;
+import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.util.List;
+
+/**
+ * Off switch for permessage-deflate on a websocket endpoint. Jetty negotiates it with every
+ * client that offers it, and spark has no setting for that, so this creates spark's jetty server
+ * to find the endpoint again once spark has started, and answers its upgrades with no extensions.
+ * <p>
+ * Deflate is worth keeping for LOAD_GAME, a whole board is the same few piece names over and
+ * over. Turning it off is for clients or proxies that mishandle it.
+ */
+public class WebSocketCompression implements JettyServerFactory {
+    private org.eclipse.jetty.server.Server server;
+
+    @Override
+    public org.eclipse.jetty.server.Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        // spark asks for this when it wasn't given a thread pool, values it wasn't given are
+        // 0 or less and get the same defaults spark's own factory uses
+        if (maxThreads <= 0) {
+            return create(new QueuedThreadPool());
+        }
+        return create(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8,
+                threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000));
+    }
+
+    @Override
+    public org.eclipse.jetty.server.Server create(ThreadPool threadPool) {
+        server = new org.eclipse.jetty.server.Server(threadPool);
+        return server;
+    }
+
+    /**
+     * Stops negotiating extensions (permessage-deflate is the only one jetty has) on a websocket
+     * path, call after spark has started (the websocket context only exists then)
+     *
+     * @return True if the path's websocket endpoint was found
+     */
+    public boolean disableDeflate(String path) {
+        if (server == null) {
+            return false;
+        }
+        for (Handler handler : server.getChildHandlersByClass(ServletContextHandler.class)) {
+            Object attribute = ((ServletContextHandler) handler).getServletContext()
+                    .getAttribute(NativeWebSocketConfiguration.class.getName());
+            if (!(attribute instanceof NativeWebSocketConfiguration configuration)) {
+                continue;
+            }
+            MatchedResource<WebSocketCreator> mapping = configuration.getMatched(path);
+            if (mapping == null) {
+                continue;
+            }
+            WebSocketCreator creator = mapping.getResource();
+            // mappings for a path that's already there are ignored, so remove it first
+            configuration.removeMapping(mapping.getPathSpec().getDeclaration());
+            configuration.addMapping(mapping.getPathSpec(), (request, response) -> {
+                // a negotiated empty list means jetty doesn't use what the client offered
+                response.setExtensions(List.of());
+                return creator.createWebSocket(request, response);
+            });
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,21 +1,35 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-
-import java.io.IOException;
+import websocket.messages.ServerMessage;
 
 public class Connection {
     public String authToken;
-//    public Integer gameID;
+    public int gameID;
     public Session session;
+    // the client asked for GAME_DELTA instead of LOAD_GAME after moves
+    public boolean acceptsDeltas;
+    // shared by every Connection on the same session
+    private final OutboundQueue outbound;
 
-    public Connection(String authToken, Session session) {
+    public Connection(String authToken, int gameID, Session session, OutboundQueue outbound) {
         this.authToken = authToken;
-//        this.gameID = gameID;
+        this.gameID = gameID;
         this.session = session;
+        this.outbound = outbound;
+    }
+
+    public void send(String msg) {
+        outbound.send(msg, null, gameID);
+    }
+
+    // queues the message, type lets a full queue pick what to drop
+    public void send(String msg, ServerMessage.ServerMessageType type) {
+        outbound.send(msg, type, gameID);
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    // the same payload can go to every connection in a broadcast, it's only encoded once
+    void send(OutboundQueue.Payload payload, ServerMessage.ServerMessageType type) {
+        outbound.send(payload, type, gameID);
     }
 }
@@ -3,7 +3,6 @@ package server.websocket;
 import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,52 +10,133 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ConnectionManager {
     public final ConcurrentHashMap<Integer, List<Connection>> connections = new ConcurrentHashMap<>();
+    // the same connections looked up by session and by authToken, kept in step with connections
+    private final ConcurrentHashMap<Session, List<Connection>> bySession = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<Connection>> byAuthToken = new ConcurrentHashMap<>();
+    // messages waiting to be sent, one queue per session no matter how many games it's in
+    private final ConcurrentHashMap<Session, OutboundQueue> outbound = new ConcurrentHashMap<>();
+    private final OutboundQueue.Counters counters = new OutboundQueue.Counters();
+    private final int maxQueued;
+    private final OutboundQueue.OverflowPolicy overflowPolicy;
+    // binary frames at least this long are compressed by FrameCodec, it has nothing to do with
+    // permessage-deflate (jetty compresses every message on those sessions)
+    private final int compressThreshold;
+
+    /**
+     * Snapshot of the outbound queues
+     *
+     * @param sessions      sessions with a queue
+     * @param queued        messages waiting across all sessions
+     * @param maxQueueDepth most messages any session has had waiting at once
+     * @param sent          messages sent
+     * @param dropped       messages dropped because a queue was full or its session was gone
+     * @param coalesced     queued LOAD_GAMEs replaced by a newer one
+     * @param disconnected  sessions closed for falling too far behind
+     */
+    public record OutboundStats(int sessions, int queued, int maxQueueDepth, long sent, long dropped,
+                                long coalesced, long disconnected) {
+    }
+
+    // queue size, overflow policy and compression threshold come from the server.websocket.maxQueued,
+    // server.websocket.overflowPolicy and server.websocket.compressThreshold system properties
+    public ConnectionManager() {
+        this(Integer.getInteger("server.websocket.maxQueued", 64),
+                OutboundQueue.OverflowPolicy.valueOf(System.getProperty("server.websocket.overflowPolicy", "COALESCE")),
+                Integer.getInteger("server.websocket.compressThreshold", 256));
+    }
+
+    public ConnectionManager(int maxQueued, OutboundQueue.OverflowPolicy overflowPolicy) {
+        this(maxQueued, overflowPolicy, 256);
+    }
+
+    public ConnectionManager(int maxQueued, OutboundQueue.OverflowPolicy overflowPolicy, int compressThreshold) {
+        this.maxQueued = maxQueued;
+        this.overflowPolicy = overflowPolicy;
+        this.compressThreshold = compressThreshold;
+    }
 
     public void add(String authToken, int gameID, Session session) {
-        var connection = new Connection(authToken, session);
+        add(authToken, gameID, session, false);
+    }
+
+    public void add(String authToken, int gameID, Session session, boolean acceptsDeltas) {
+        // a CONNECT that ran after its session closed would never be removed
+        if (!session.isOpen()) {
+            return;
+        }
+        var connection = new Connection(authToken, gameID, session, outbound(session));
+        connection.acceptsDeltas = acceptsDeltas;
 
         // CopyOnWriteArray is used bc its thread safe for read and writing
-        connections.computeIfAbsent(gameID, k -> new CopyOnWriteArrayList<>()).add(connection);
+        addTo(connections, gameID, connection);
+        addTo(bySession, session, connection);
+        addTo(byAuthToken, authToken, connection);
+
+        // closed while being added, onClose may have looked before it was there
+        if (!session.isOpen()) {
+            removeConnection(session);
+        }
     }
 
     public void remove(String authToken, int gameID) {
-        var gameConnections = connections.get(gameID);
-
-        // verify there is a connection to remove
-        if (gameConnections != null) {
-            // remove only the connection for this authToken
-            gameConnections.removeIf(c -> c.authToken.equals(authToken));
-
-            if (gameConnections.isEmpty()) {
-                // there are no more connections for the game, so remove it
-                connections.remove(gameID);
+        // remove only the connection for this authToken
+        for (var c : connectionsFor(authToken)) {
+            if (c.gameID == gameID) {
+                unregister(c);
             }
         }
     }
 
     public void removeConnection(Session session) {
-        for (var conn : connections.values()) {
-            conn.removeIf(c -> c.session.equals(session));
+        outbound.remove(session);
+        var sessionConnections = bySession.remove(session);
+        if (sessionConnections != null) {
+            for (var c : sessionConnections) {
+                unregister(c);
+            }
         }
+    }
 
-        // remove the empty game entries
-        connections.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+    // removes a closed session from one game, and its outbound queue once it's in no game
+    public void removeConnection(Session session, int gameID) {
+        for (var c : connectionsFor(session)) {
+            if (c.gameID == gameID) {
+                unregister(c);
+            }
+        }
+        if (connectionsFor(session).isEmpty()) {
+            outbound.remove(session);
+        }
+    }
+
+    // every game the session is connected to has its own Connection
+    public List<Connection> connectionsFor(Session session) {
+        return bySession.getOrDefault(session, List.of());
+    }
+
+    public List<Connection> connectionsFor(String authToken) {
+        return byAuthToken.getOrDefault(authToken, List.of());
     }
 
     // will broadcast a message to all clients in a game except specified one (one who makes a move for example)
-    public void broadcast(int gameID, String excludeAuthToken, ServerMessage message) throws IOException {
+    public void broadcast(int gameID, String excludeAuthToken, ServerMessage message) {
         var gameConnections = connections.get(gameID);
         if (gameConnections == null || gameConnections.isEmpty()) {
             // there isn't a connection to broadcast to
             return;
         }
 
+        // serialize once, every connection gets the same payload
+        OutboundQueue.Payload payload = null;
         var removeList = new ArrayList<Connection>();
 
         for (var c : gameConnections) {
             if (c.session.isOpen()) {
                 if (!c.authToken.equals(excludeAuthToken)) {
-                    c.send(message.toString());
+                    if (payload == null) {
+                        payload = new OutboundQueue.Payload(message.toString());
+                    }
+                    c.send(payload, message.getServerMessageType());
                 }
             } else {
                 removeList.add(c);
@@ -65,53 +145,131 @@ public class ConnectionManager {
 
         // Clean up any closed connections
         for (var c : removeList) {
-            gameConnections.remove(c);
-        }
-
-        // remove game entry if there are no more connections for the game
-        if (gameConnections.isEmpty()) {
-            connections.remove(gameID);
+            unregister(c);
+            outbound.remove(c.session);
         }
     }
 
-    public void sendMessage(Session session, ServerMessage message) throws IOException{
-        // find the connection associated with the authToken
-        for (var gameConnections : connections.values()) {
-            for (var c : gameConnections) {
-                if (c.session.equals(session) && c.session.isOpen()) {
-                    c.send(message.toString());
-                    return;
-                }
-            }
-        }
-    }
-
-    // will broadcast a message to all clients in the game, including the sender (for game updates for example)
-    public void broadcastToAll(int gameID, ServerMessage message) throws IOException {
+    // sends a game after a move, as the delta to connections that asked for deltas and as the
+    // whole game to the rest. each is serialized at most once
+    public void broadcastGameUpdate(int gameID, ServerMessage loadGame, ServerMessage delta) {
         var gameConnections = connections.get(gameID);
         if (gameConnections == null || gameConnections.isEmpty()) {
-            // there isn't a connection to broadcast to
             return;
         }
 
+        OutboundQueue.Payload loadGamePayload = null;
+        OutboundQueue.Payload deltaPayload = null;
         var removeList = new ArrayList<Connection>();
 
         for (var c : gameConnections) {
-            if (c.session.isOpen()) {
-                c.send(message.toString());
-            } else {
+            if (!c.session.isOpen()) {
                 removeList.add(c);
+            } else if (c.acceptsDeltas) {
+                if (deltaPayload == null) {
+                    deltaPayload = new OutboundQueue.Payload(delta.toString());
+                }
+                c.send(deltaPayload, ServerMessage.ServerMessageType.GAME_DELTA);
+            } else {
+                if (loadGamePayload == null) {
+                    loadGamePayload = new OutboundQueue.Payload(loadGame.toString());
+                }
+                c.send(loadGamePayload, ServerMessage.ServerMessageType.LOAD_GAME);
             }
         }
 
-        // Clean up any closed connections
         for (var c : removeList) {
-            gameConnections.remove(c);
+            unregister(c);
+            outbound.remove(c.session);
+        }
+    }
+
+    public void sendMessage(Session session, ServerMessage message) {
+        // only sessions connected to a game get messages this way
+        for (var c : connectionsFor(session)) {
+            if (c.session.isOpen()) {
+                c.send(message.toString(), message.getServerMessageType());
+                return;
+            }
+        }
+    }
+
+    // queues a message for a session even if it isn't connected to a game (errors for example)
+    public void sendTo(Session session, String json, ServerMessage.ServerMessageType type) {
+        if (session.isOpen()) {
+            outbound(session).send(json, type, 0);
+        }
+    }
+
+    // the client sent a binary frame, answer it in binary too. on a session with permessage-deflate
+    // the frames are left uncompressed, jetty deflates them anyway
+    public void useBinary(Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        outbound(session).useBinary(hasDeflate(session) ? OutboundQueue.NEVER_COMPRESS : compressThreshold);
+    }
+
+    private static boolean hasDeflate(Session session) {
+        var upgrade = session.getUpgradeResponse();
+        if (upgrade == null) {
+            return false;
+        }
+        for (var extension : upgrade.getExtensions()) {
+            if (extension.getName().equals("permessage-deflate")) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        // remove game entry if there are no more connections for the game
-        if (gameConnections.isEmpty()) {
-            connections.remove(gameID);
+    // closes the session after the messages queued for it are sent
+    public void closeAfterSend(Session session) {
+        outbound(session).closeWhenSent();
+    }
+
+    public OutboundStats getOutboundStats() {
+        int queued = 0;
+        int maxDepth = 0;
+        for (OutboundQueue queue : outbound.values()) {
+            queued += queue.depth();
+            maxDepth = Math.max(maxDepth, queue.maxDepth());
         }
+        return new OutboundStats(outbound.size(), queued, maxDepth, counters.sent.sum(), counters.dropped.sum(),
+                counters.coalesced.sum(), counters.disconnected.sum());
+    }
+
+    private void unregister(Connection connection) {
+        // drop the connection from its game and both indexes, and any list it leaves empty
+        removeFrom(connections, connection.gameID, connection);
+        removeFrom(bySession, connection.session, connection);
+        removeFrom(byAuthToken, connection.authToken, connection);
+    }
+
+    private static <K> void addTo(ConcurrentHashMap<K, List<Connection>> index, K key, Connection connection) {
+        index.compute(key, (k, list) -> {
+            if (list == null) {
+                list = new CopyOnWriteArrayList<>();
+            }
+            list.add(connection);
+            return list;
+        });
+    }
+
+    private static <K> void removeFrom(ConcurrentHashMap<K, List<Connection>> index, K key, Connection connection) {
+        index.computeIfPresent(key, (k, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private OutboundQueue outbound(Session session) {
+        return outbound.computeIfAbsent(session,
+                s -> new OutboundQueue(s, maxQueued, overflowPolicy, counters));
+    }
+
+    // will broadcast a message to all clients in the game, including the sender (for game updates for example)
+    public void broadcastToAll(int gameID, ServerMessage message) {
+        broadcast(gameID, null, message);
     }
 }
@@ -0,0 +1,118 @@
+package server.websocket;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the websocket commands for each game one at a time and in the order they came in,
+ * while commands for different games run in parallel on a shared pool of threads.
+ * <p>
+ * Every game with commands waiting has a mailbox. Only one thread drains a mailbox at a
+ * time, so the load, check and save of a move can't interleave with another command on
+ * the same game, and nothing is locked while commands run. A mailbox gives its thread back
+ * after a batch of commands so one busy game can't starve the others, and it's dropped as
+ * soon as it's empty.
+ */
+public class GameExecutor {
+    // commands run from one mailbox before it goes to the back of the pool's queue
+    private static final int BATCH_SIZE = 16;
+
+    private final ExecutorService pool;
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public GameExecutor(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Queues a command to run after every command already queued for the same game
+     */
+    public void submit(int gameID, Runnable command) {
+        Mailbox[] start = {null};
+        // mailboxes are only created, scheduled and dropped inside compute, so those can't race
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox(id);
+            }
+            mailbox.commands.add(command);
+            if (!mailbox.scheduled) {
+                mailbox.scheduled = true;
+                start[0] = mailbox;
+            }
+            return mailbox;
+        });
+        if (start[0] != null) {
+            try {
+                pool.execute(start[0]::drain);
+            } catch (RejectedExecutionException ex) {
+                // shut down, run it on the caller's thread instead of losing it
+                start[0].drain();
+            }
+        }
+    }
+
+    /**
+     * @return number of games with commands waiting or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Lets queued commands finish, waiting up to the timeout, and stops the threads
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(timeout, unit);
+    }
+
+    private final class Mailbox {
+        private final int gameID;
+        private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+        // only read and written inside mailboxes.compute for this game
+        private boolean scheduled;
+
+        private Mailbox(int gameID) {
+            this.gameID = gameID;
+        }
+
+        private void drain() {
+            while (true) {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Runnable command = commands.poll();
+                    if (command == null) {
+                        break;
+                    }
+                    try {
+                        command.run();
+                    } catch (RuntimeException ex) {
+                        System.out.println("Command for game " + gameID + " failed: " + ex.getMessage());
+                    }
+                }
+
+                boolean[] more = {false};
+                mailboxes.compute(gameID, (id, mailbox) -> {
+                    if (commands.isEmpty()) {
+                        scheduled = false;
+                        return null;
+                    }
+                    more[0] = true;
+                    return mailbox;
+                });
+                if (!more[0]) {
+                    return;
+                }
+                try {
+                    pool.execute(this::drain);
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    // shutting down, finish the game's commands on this thread
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.FrameCodec;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Messages waiting to go out on one websocket session. Sending only queues the message,
+ * and jetty's async send writes them one after the other, so a client that reads slowly
+ * only backs up its own queue instead of holding up the command that's broadcasting.
+ * <p>
+ * The queue is bounded. What happens when it's full is up to the OverflowPolicy.
+ * <p>
+ * Sessions that talk binary (see FrameCodec) get binary frames, everyone else gets text.
+ * <p>
+ * A session that overflows or fails a write is dropped without waiting for a close handshake
+ * it won't finish, its onClose then takes it out of the ConnectionManager.
+ */
+public class OutboundQueue implements WriteCallback {
+
+    public enum OverflowPolicy {
+        // make room by dropping the oldest queued LOAD_GAME of the same game, disconnect if
+        // there isn't one
+        DROP_OLDEST_LOAD_GAME,
+        // a new LOAD_GAME replaces the game's queued LOAD_GAMEs and GAME_DELTAs (only the
+        // latest board matters), disconnect if the queue is still full
+        COALESCE,
+        // disconnect as soon as the queue is full
+        DISCONNECT
+    }
+
+    /**
+     * Counts shared by every queue of a ConnectionManager
+     */
+    static final class Counters {
+        final LongAdder sent = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder disconnected = new LongAdder();
+    }
+
+    // compressThreshold for sessions whose binary frames shouldn't be compressed
+    static final int NEVER_COMPRESS = Integer.MAX_VALUE;
+
+    /**
+     * A message's JSON and its binary frames, shared by every queue it's sent to so a broadcast
+     * is only encoded once
+     */
+    static final class Payload {
+        final String text;
+        // one frame for sessions that compress at the manager's threshold, one for NEVER_COMPRESS
+        private volatile byte[] compressed;
+        private volatile byte[] plain;
+
+        Payload(String text) {
+            this.text = text;
+        }
+
+        ByteBuffer binary(int compressThreshold) {
+            // two queues can race to encode it, either result is fine
+            byte[] frame;
+            if (compressThreshold == NEVER_COMPRESS) {
+                frame = plain;
+                if (frame == null) {
+                    frame = FrameCodec.encode(text, NEVER_COMPRESS);
+                    plain = frame;
+                }
+            } else {
+                frame = compressed;
+                if (frame == null) {
+                    frame = FrameCodec.encode(text, compressThreshold);
+                    compressed = frame;
+                }
+            }
+            return ByteBuffer.wrap(frame);
+        }
+    }
+
+    // a session can be in several games, gameID keeps one game's frames from replacing another's
+    private record Frame(Payload payload, ServerMessageType type, int gameID) {
+    }
+
+    private final Session session;
+    private final int maxQueued;
+    private final OverflowPolicy policy;
+    private final Counters counters;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    // everything below is guarded by lock
+    private boolean sending;
+    // a sendString call is on the stack, and whether jetty finished it before returning
+    private boolean writing;
+    private boolean completedInline;
+    private boolean closeWhenSent;
+    private boolean closed;
+    private int maxDepth;
+    // set once the client sends a binary frame, -1 while it's on text
+    private volatile int compressThreshold = -1;
+
+    OutboundQueue(Session session, int maxQueued, OverflowPolicy policy, Counters counters) {
+        this.session = session;
+        this.maxQueued = maxQueued;
+        this.policy = policy;
+        this.counters = counters;
+    }
+
+    /**
+     * Queues a message, type is null for messages that aren't ServerMessages and gameID is 0
+     * for messages that aren't about a game
+     */
+    void send(String text, ServerMessageType type, int gameID) {
+        send(new Payload(text), type, gameID);
+    }
+
+    void send(Payload payload, ServerMessageType type, int gameID) {
+        boolean start = false;
+        boolean disconnect = false;
+        lock.lock();
+        try {
+            if (closed) {
+                counters.dropped.increment();
+                return;
+            }
+            if (type == ServerMessageType.LOAD_GAME && policy == OverflowPolicy.COALESCE) {
+                counters.coalesced.add(removeGameUpdates(gameID));
+            }
+            if (frames.size() >= maxQueued) {
+                if (policy != OverflowPolicy.DISCONNECT && removeOldestLoadGame(gameID)) {
+                    counters.dropped.increment();
+                } else {
+                    disconnect = true;
+                    closed = true;
+                    counters.dropped.add(frames.size() + 1);
+                    frames.clear();
+                }
+            }
+            if (!disconnect) {
+                frames.add(new Frame(payload, type, gameID));
+                maxDepth = Math.max(maxDepth, frames.size());
+                if (!sending) {
+                    sending = true;
+                    start = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (disconnect) {
+            counters.disconnected.increment();
+            System.out.println("Disconnecting " + session.getRemoteAddress() + ", it isn't reading its messages");
+            disconnect(StatusCode.TRY_AGAIN_LATER, "Too many messages waiting");
+        } else if (start) {
+            sendNext();
+        }
+    }
+
+    /**
+     * Sends binary frames from now on, compressing messages of at least compressThreshold bytes
+     * (NEVER_COMPRESS for none)
+     */
+    void useBinary(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * Closes the session once everything queued so far has been sent
+     */
+    void closeWhenSent() {
+        lock.lock();
+        try {
+            if (sending) {
+                closeWhenSent = true;
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        session.close();
+    }
+
+    int depth() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int maxDepth() {
+        lock.lock();
+        try {
+            return maxDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        counters.sent.increment();
+        lock.lock();
+        try {
+            if (writing) {
+                // still inside sendString, sendNext's loop picks up the next frame
+                completedInline = true;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        sendNext();
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+        lock.lock();
+        try {
+            closed = true;
+            sending = false;
+            counters.dropped.add(frames.size() + 1);
+            frames.clear();
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("Failed to send to " + session.getRemoteAddress() + ": " + cause.getMessage());
+        disconnect(StatusCode.SERVER_ERROR, "Write failed");
+    }
+
+    private void disconnect(int statusCode, String reason) {
+        // the close frame is only queued, a peer that isn't reading never gets it, so the
+        // connection is cut right after
+        session.close(statusCode, reason);
+        try {
+            session.disconnect();
+        } catch (IOException ex) {
+            System.out.println("Failed to disconnect " + session.getRemoteAddress() + ": " + ex.getMessage());
+        }
+    }
+
+    private void sendNext() {
+        // loops instead of calling itself from the callback, jetty often finishes a write
+        // before sendString returns
+        while (true) {
+            Frame frame;
+            boolean close = false;
+            lock.lock();
+            try {
+                frame = frames.poll();
+                if (frame == null) {
+                    sending = false;
+                    if (closeWhenSent) {
+                        closed = true;
+                        close = true;
+                    }
+                } else {
+                    writing = true;
+                    completedInline = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (frame == null) {
+                if (close) {
+                    session.close();
+                }
+                return;
+            }
+            try {
+                int threshold = compressThreshold;
+                if (threshold < 0) {
+                    session.getRemote().sendString(frame.payload.text, this);
+                } else {
+                    session.getRemote().sendBytes(frame.payload.binary(threshold), this);
+                }
+            } catch (RuntimeException ex) {
+                writeFailed(ex);
+            }
+
+            lock.lock();
+            try {
+                writing = false;
+                if (!completedInline) {
+                    // writeSuccess will carry on when the write finishes
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int removeGameUpdates(int gameID) {
+        // lock must be held. deltas before a full game are already part of it
+        int removed = 0;
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            Frame queued = iterator.next();
+            if (queued.gameID == gameID
+                    && (queued.type == ServerMessageType.LOAD_GAME || queued.type == ServerMessageType.GAME_DELTA)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean removeOldestLoadGame(int gameID) {
+        // lock must be held
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            Frame queued = iterator.next();
+            if (queued.gameID == gameID && queued.type == ServerMessageType.LOAD_GAME) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
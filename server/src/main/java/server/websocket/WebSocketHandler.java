@@ -14,12 +14,20 @@ import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import service.GameService;
+import websocket.FrameCodec;
 import websocket.commands.UserGameCommand;
+import websocket.messages.GameDelta;
 import websocket.messages.ServerMessage;
 import chess.ChessMove;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @WebSocket
 public class WebSocketHandler {
@@ -28,10 +36,18 @@ public class WebSocketHandler {
     private final GameService gameService;
 //    private final Gson serializer = new Gson();
     private final Gson gson;
+    // commands run here instead of on jetty's threads, one at a time per game
+    private final GameExecutor gameExecutor;
 
     // constructor for WebSocketHandler
     public WebSocketHandler(GameService gameService) {
+        this(gameService, false);
+    }
+
+    // with virtualThreads each command gets its own virtual thread instead of a pool thread
+    public WebSocketHandler(GameService gameService, boolean virtualThreads) {
         this.gameService = gameService;
+        this.gameExecutor = new GameExecutor(createWorkers(virtualThreads));
         this.gson = new GsonBuilder() .registerTypeAdapter(UserGameCommand.class, new UserGameCommand.GameSerializer())
                 .create();
     }
@@ -44,26 +60,84 @@ public class WebSocketHandler {
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
         System.out.println("WebSocket connection closed: " + session.getRemoteAddress() + " with status " + statusCode);
-        connections.removeConnection(session);
+        // removed in each game's mailbox, after any of the session's commands still queued there
+        Set<Integer> gameIDs = new HashSet<>();
+        for (Connection connection : connections.connectionsFor(session)) {
+            gameIDs.add(connection.gameID);
+        }
+        if (gameIDs.isEmpty()) {
+            connections.removeConnection(session);
+        }
+        for (int gameID : gameIDs) {
+            gameExecutor.submit(gameID, () -> connections.removeConnection(session, gameID));
+        }
     }
 
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException, DataAccessException {
+    public void onMessage(Session session, String message) {
         UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
 
+        // commands for the same game run in order, a game's moves can't race each other
+        int gameID = command.getGameID() != null ? command.getGameID() : 0;
+        gameExecutor.submit(gameID, () -> runCommand(session, command));
+    }
+
+    // binary frames hold a command encoded by FrameCodec, the client gets binary frames back
+    @OnWebSocketMessage
+    public void onMessage(Session session, byte[] buffer, int offset, int length) {
+        String message;
+        try {
+            // a frame inflates to no more than jetty would take as a text message
+            message = FrameCodec.decode(buffer, offset, length, session.getPolicy().getMaxTextMessageSize());
+        } catch (IllegalArgumentException ex) {
+            sendError(session, "Error: " + ex.getMessage());
+            return;
+        }
+        connections.useBinary(session);
+        onMessage(session, message);
+    }
+
+    // lets the commands already received finish
+    public void stop() {
+        try {
+            gameExecutor.shutdown(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runCommand(Session session, UserGameCommand command) {
         try {
             // verify user is authenticated
             checkAuth(command.getAuthToken());
 
             switch (command.getCommandType()) {
-                case CONNECT -> connect(command.getAuthToken(), command.getGameID(), session);
+                case CONNECT -> connect(command.getAuthToken(), command.getGameID(), command.acceptsDeltas(), session);
                 case MAKE_MOVE -> makeMove(command.getAuthToken(), command.getGameID(), command.getMove(), session);
                 case LEAVE -> leave(command.getAuthToken(), command.getGameID(), session);
                 case RESIGN -> resign(command.getAuthToken(), command.getGameID(), session);
+                case RESYNC -> resync(command.getGameID(), session);
             }
         } catch (ResponseException | DataAccessException ex) {
             sendError(session, ex.getMessage());
+        } catch (IOException ex) {
+            System.out.println("Failed to handle " + command.getCommandType() + ": " + ex.getMessage());
+        }
+    }
+
+    private static ExecutorService createWorkers(boolean virtualThreads) {
+        if (virtualThreads) {
+            // the game mailboxes still keep each game's commands in order
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-worker-", 1).factory());
         }
+        // commands mostly wait on the database and the network, so a few more threads than cores
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private void checkAuth(String authToken) throws ResponseException{
@@ -147,7 +221,8 @@ public class WebSocketHandler {
         }
     }
 
-    private void connect(String authToken, Integer gameID, Session session) throws IOException, DataAccessException {
+    private void connect(String authToken, Integer gameID, boolean acceptsDeltas, Session session)
+            throws IOException, DataAccessException {
         // verify user is authenticated
         checkAuth(authToken);
 
@@ -166,7 +241,7 @@ public class WebSocketHandler {
             }
 
             // connect to a specific game
-            connections.add(authToken, gameID, session);
+            connections.add(authToken, gameID, session, acceptsDeltas);
 
             // send a notification
             String username = gameService.getUsername(authToken);
@@ -181,7 +256,8 @@ public class WebSocketHandler {
             connections.sendMessage(session, loadGame);
         } catch (ResponseException | NullPointerException ex) {
             sendError(session, ex.getMessage());
-            session.close();
+            // after the error goes out, it's only queued so far
+            connections.closeAfterSend(session);
         }
     }
 
@@ -216,11 +292,12 @@ public class WebSocketHandler {
             System.out.println("Sending notification: " + message);
             connections.broadcast(gameID, authToken, notification);
 
-            // update game state for all players
+            // update game state for all players, clients that asked for deltas only get the move
             gameData = gameService.load(gameID);
             ServerMessage loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameData);
-            System.out.println("Sending LOAD_GAME message with updated game state");
-            connections.broadcast(gameID, null, loadGame);
+            ServerMessage delta = new ServerMessage(GameDelta.of(chessMove, gameData.game()));
+            System.out.println("Sending updated game state");
+            connections.broadcastGameUpdate(gameID, loadGame, delta);
         } catch (ResponseException ex) {
             System.out.println("Error processing move: " + ex.getMessage());
             ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR, null, ex.getMessage(), null);
@@ -276,14 +353,20 @@ public class WebSocketHandler {
         }
     }
 
-    private void sendError(Session session, String message) {
-        // function for sending errors
-        try {
-            ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR, null, message, null);
-            String errorString = gson.toJson(error);
-            session.getRemote().sendString(errorString);
-        } catch (IOException e) {
-            System.out.println("Failed to send error message: " + e.getMessage());
+    private void resync(Integer gameID, Session session) throws ResponseException {
+        // a client's copy of the game didn't match a delta, send it the whole game
+        GameData gameData = gameService.load(gameID);
+        if (gameData == null) {
+            throw new ResponseException(400, "Game wasn't found");
         }
+        ServerMessage loadGame = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameData);
+        connections.sendMessage(session, loadGame);
+    }
+
+    private void sendError(Session session, String message) {
+        // function for sending errors, queued like every other message
+        ServerMessage error = new ServerMessage(ServerMessage.ServerMessageType.ERROR, null, message, null);
+        String errorString = gson.toJson(error);
+        connections.sendTo(session, errorString, ServerMessage.ServerMessageType.ERROR);
     }
 }
@@ -217,8 +217,8 @@ public class GameService {
                 // make the move
                 gameData.game().makeMove(chessMove);
 
-                // update game in the database
-                gameDAO.updateGame(gameData);
+                // save the move in the database
+                gameDAO.recordMove(gameData, chessMove);
                 System.out.println("sent the move on!");
             } catch (InvalidMoveException e) {
                 throw new ResponseException(400, e.getMessage());
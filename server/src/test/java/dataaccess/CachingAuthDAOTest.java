@@ -0,0 +1,104 @@
+package dataaccess;
+
+import dataaccess.cache.CachingAuthDAO;
+import dataaccess.memory.MemoryAuthDAO;
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+public class CachingAuthDAOTest {
+
+    private int lookups;
+    private MemoryAuthDAO database;
+    private CachingAuthDAO authDAO;
+
+    @BeforeEach
+    public void setup() {
+        lookups = 0;
+        database = new MemoryAuthDAO() {
+            @Override
+            public AuthData getAuth(String authToken) {
+                lookups++;
+                return super.getAuth(authToken);
+            }
+        };
+        authDAO = new CachingAuthDAO(database, 2, 60_000, 60_000);
+    }
+
+    @Test
+    @DisplayName("Found tokens are only looked up once")
+    void cachesFoundToken() throws DataAccessException {
+        authDAO.createAuth(new AuthData("token", "user"));
+
+        Assertions.assertEquals("user", authDAO.getAuth("token").username());
+        Assertions.assertEquals("user", authDAO.getAuth("token").username());
+        Assertions.assertEquals(0, lookups);
+    }
+
+    @Test
+    @DisplayName("Missing tokens are remembered too")
+    void cachesMissingToken() throws DataAccessException {
+        Assertions.assertNull(authDAO.getAuth("badToken"));
+        Assertions.assertNull(authDAO.getAuth("badToken"));
+        Assertions.assertEquals(1, lookups);
+        Assertions.assertEquals(1, authDAO.getHits());
+    }
+
+    @Test
+    @DisplayName("Deleted tokens stop working right away")
+    void deleteInvalidates() throws DataAccessException {
+        authDAO.createAuth(new AuthData("token", "user"));
+        authDAO.getAuth("token");
+        authDAO.deleteAuth("token");
+
+        Assertions.assertNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    @DisplayName("Tokens expire after the TTL")
+    void expires() throws DataAccessException, InterruptedException {
+        authDAO = new CachingAuthDAO(database, 2, 50, 50);
+        authDAO.createAuth(new AuthData("token", "user"));
+        database.deleteAuth("token");
+
+        Assertions.assertNotNull(authDAO.getAuth("token"));
+        Thread.sleep(100);
+        Assertions.assertNull(authDAO.getAuth("token"));
+    }
+
+    @Test
+    @DisplayName("A lookup that raced a createAuth doesn't keep its \"not found\"")
+    void createDuringLookup() throws DataAccessException {
+        database = new MemoryAuthDAO() {
+            @Override
+            public AuthData getAuth(String authToken) {
+                // the token is created while this lookup is at the database
+                AuthData found = super.getAuth(authToken);
+                try {
+                    authDAO.createAuth(new AuthData(authToken, "user"));
+                } catch (DataAccessException ex) {
+                    throw new RuntimeException(ex);
+                }
+                return found;
+            }
+        };
+        authDAO = new CachingAuthDAO(database, 2, 60_000, 60_000);
+
+        Assertions.assertNull(authDAO.getAuth("token"));
+        Assertions.assertEquals("user", authDAO.getAuth("token").username());
+    }
+
+    @Test
+    @DisplayName("Only the most recently used tokens are kept")
+    void boundedSize() throws DataAccessException {
+        authDAO.createAuth(new AuthData("token1", "user1"));
+        authDAO.createAuth(new AuthData("token2", "user2"));
+        authDAO.getAuth("token1");
+        authDAO.createAuth(new AuthData("token3", "user3"));
+
+        Assertions.assertEquals(2, authDAO.size());
+        authDAO.getAuth("token1");
+        Assertions.assertEquals(0, lookups);
+        authDAO.getAuth("token2");
+        Assertions.assertEquals(1, lookups);
+    }
+}
@@ -0,0 +1,171 @@
+package dataaccess;
+
+import dataaccess.sql.ConnectionPool;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPoolTest {
+
+    private AtomicInteger opened;
+    private AtomicInteger closed;
+    // connections opened before this one fail validation
+    private volatile int firstValid;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setup() {
+        opened = new AtomicInteger();
+        closed = new AtomicInteger();
+        pool = new ConnectionPool(this::fakeConnection, 0, 2, 60_000, 100, null);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Closing a connection returns it to the pool")
+    void reusesConnection() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            Assertions.assertFalse(conn.isClosed());
+        }
+        try (Connection conn = pool.getConnection()) {
+            Assertions.assertFalse(conn.isClosed());
+        }
+
+        Assertions.assertEquals(1, opened.get());
+        Assertions.assertEquals(0, closed.get());
+        ConnectionPool.Metrics metrics = pool.getMetrics();
+        Assertions.assertEquals(1, metrics.total());
+        Assertions.assertEquals(1, metrics.idle());
+        Assertions.assertEquals(2, metrics.acquired());
+    }
+
+    @Test
+    @DisplayName("A returned connection can't be used again")
+    void returnedConnectionUnusable() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+
+        Assertions.assertTrue(conn.isClosed());
+        Assertions.assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        Assertions.assertEquals(1, pool.getMetrics().idle());
+    }
+
+    @Test
+    @DisplayName("Waiting for a connection times out when the pool is used up")
+    void acquireTimeout() throws SQLException {
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            Assertions.assertEquals(2, pool.getMetrics().active());
+            Assertions.assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        }
+
+        Assertions.assertEquals(1, pool.getMetrics().timeouts());
+        Assertions.assertEquals(2, opened.get());
+    }
+
+    @Test
+    @DisplayName("A broken connection is replaced instead of handed out")
+    void replacesBrokenConnection() throws SQLException, InterruptedException {
+        pool.getConnection().close();
+        firstValid = 2;
+
+        // make the idle connection old enough to be checked
+        Thread.sleep(600);
+        try (Connection fresh = pool.getConnection()) {
+            Assertions.assertFalse(fresh.isClosed());
+        }
+        Assertions.assertEquals(2, opened.get());
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertEquals(1, pool.getMetrics().total());
+    }
+
+    @Test
+    @DisplayName("Prefilling opens minIdle connections")
+    void prefill() throws SQLException {
+        ConnectionPool filled = new ConnectionPool(this::fakeConnection, 2, 3, 60_000, 100, null);
+        try {
+            filled.prefill();
+            filled.prefill();
+            Assertions.assertEquals(2, opened.get());
+            Assertions.assertEquals(2, filled.getMetrics().idle());
+
+            try (Connection conn = filled.getConnection()) {
+                Assertions.assertFalse(conn.isClosed());
+            }
+            Assertions.assertEquals(2, opened.get());
+        } finally {
+            filled.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Statements left open are closed when the connection is returned")
+    void closesStatements() throws SQLException {
+        Statement statement;
+        try (Connection conn = pool.getConnection()) {
+            statement = conn.createStatement();
+            Assertions.assertFalse(statement.isClosed());
+            Assertions.assertThrows(SQLException.class, () -> conn.unwrap(Connection.class));
+        }
+
+        Assertions.assertTrue(statement.isClosed());
+        Assertions.assertEquals(1, pool.getMetrics().idle());
+    }
+
+    @Test
+    @DisplayName("A connection closed through its statement isn't put back")
+    void statementClosedConnection() throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement statement = conn.createStatement()) {
+            statement.getConnection().close();
+        }
+
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertEquals(0, pool.getMetrics().total());
+        Assertions.assertEquals(0, pool.getMetrics().idle());
+    }
+
+    private Connection fakeConnection() {
+        // just enough of a connection for the pool: it can be closed and checked, and its
+        // statements can be closed and know where they came from
+        int number = opened.incrementAndGet();
+        boolean[] isClosed = {false};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "createStatement" -> fakeStatement((Connection) proxy);
+                    case "close" -> {
+                        if (!isClosed[0]) {
+                            isClosed[0] = true;
+                            closed.incrementAndGet();
+                        }
+                        yield null;
+                    }
+                    case "isClosed" -> isClosed[0];
+                    case "isValid" -> !isClosed[0] && number >= firstValid;
+                    case "getAutoCommit" -> true;
+                    default -> null;
+                });
+    }
+
+    private static Statement fakeStatement(Connection connection) {
+        boolean[] isClosed = {false};
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> connection;
+                    case "close" -> {
+                        isClosed[0] = true;
+                        yield null;
+                    }
+                    case "isClosed" -> isClosed[0];
+                    default -> null;
+                });
+    }
+}
@@ -1,6 +1,9 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.sql.SQLGameDAO;
 import model.GameData;
 import org.junit.jupiter.api.*;
@@ -52,4 +55,56 @@ public class GameDAOTest {
         GameData retrievedGame = gameDAO.getGame(781);
         Assertions.assertNull(retrievedGame, "Expected null for game that doesn't exist");
     }
+
+    @Test
+    @DisplayName("Should keep the board and turn after updating a game in either format")
+    void successfulUpdateGameBothFormats() throws DataAccessException, InvalidMoveException {
+        for (SQLGameDAO.StorageFormat format : SQLGameDAO.StorageFormat.values()) {
+            SQLGameDAO formatDAO = new SQLGameDAO(format);
+            GameData createdGame = formatDAO.createGame(new GameData(0, "whiteUser", "blackUser", "testGame", new ChessGame()));
+
+            // make a move and store it
+            ChessGame game = createdGame.game();
+            game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            formatDAO.updateGame(createdGame);
+
+            GameData retrievedGame = formatDAO.getGame(createdGame.gameID());
+            Assertions.assertEquals(game, retrievedGame.game(), "game changed when stored as " + format);
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, retrievedGame.game().getTeamTurn());
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild a game from its snapshot and move log")
+    void successfulRecordMove() throws DataAccessException, InvalidMoveException {
+        GameData createdGame = gameDAO.createGame(new GameData(0, "whiteUser", "blackUser", "testGame", new ChessGame()));
+        ChessGame game = createdGame.game();
+
+        // knights out and back 6 times, past the default snapshot interval, then one more move
+        ChessMove[] cycle = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)
+        };
+        for (int i = 0; i < 6; i++) {
+            for (ChessMove move : cycle) {
+                game.makeMove(move);
+                gameDAO.recordMove(createdGame, move);
+            }
+        }
+        ChessMove lastMove = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(lastMove);
+        gameDAO.recordMove(createdGame, lastMove);
+
+        GameData retrievedGame = gameDAO.getGame(createdGame.gameID());
+        Assertions.assertEquals(game, retrievedGame.game());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, retrievedGame.game().getTeamTurn());
+        Assertions.assertEquals(game, gameDAO.listGames().get(0).game());
+
+        // a full update still works on top of the log
+        createdGame = new GameData(createdGame.gameID(), "whiteUser", "otherUser", "testGame", game);
+        gameDAO.updateGame(createdGame);
+        Assertions.assertEquals(game, gameDAO.getGame(createdGame.gameID()).game());
+    }
 }
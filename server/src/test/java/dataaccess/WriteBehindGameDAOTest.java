@@ -0,0 +1,115 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.cache.WriteBehindGameDAO;
+import dataaccess.memory.MemoryGameDAO;
+import model.GameData;
+import org.junit.jupiter.api.*;
+
+public class WriteBehindGameDAOTest {
+
+    private MemoryGameDAO database;
+    private WriteBehindGameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() {
+        database = new MemoryGameDAO();
+        // long flush interval so the tests decide when writes happen
+        gameDAO = new WriteBehindGameDAO(database, 60_000, 1000, 60_000).start();
+    }
+
+    @AfterEach
+    public void close() {
+        gameDAO.close();
+    }
+
+    @Test
+    @DisplayName("Moves are served from memory and written on flush")
+    void writeBehind() throws DataAccessException, InvalidMoveException {
+        GameData created = gameDAO.createGame(new GameData(0, "whiteUser", "blackUser", "testGame", new ChessGame()));
+
+        GameData loaded = gameDAO.getGame(created.gameID());
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        loaded.game().makeMove(move);
+        gameDAO.recordMove(loaded, move);
+
+        // the cache has the move, the database doesn't yet
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(created.gameID()).game().getTeamTurn());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, database.getGame(created.gameID()).game().getTeamTurn());
+        Assertions.assertEquals(1, gameDAO.getPendingWrites());
+
+        gameDAO.flush();
+        Assertions.assertEquals(loaded.game(), database.getGame(created.gameID()).game());
+        Assertions.assertEquals(0, gameDAO.getPendingWrites());
+    }
+
+    @Test
+    @DisplayName("Changing a loaded game doesn't change the cached one")
+    void copiesGames() throws DataAccessException, InvalidMoveException {
+        GameData created = gameDAO.createGame(new GameData(0, "whiteUser", "blackUser", "testGame", new ChessGame()));
+
+        GameData loaded = gameDAO.getGame(created.gameID());
+        loaded.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(created.gameID()).game().getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Closing writes what's still queued")
+    void closeFlushes() throws DataAccessException {
+        GameData created = gameDAO.createGame(new GameData(0, "whiteUser", null, "testGame", new ChessGame()));
+        gameDAO.updateGame(new GameData(created.gameID(), "whiteUser", "blackUser", "testGame", created.game()));
+
+        Assertions.assertNull(database.getGame(created.gameID()).blackUsername());
+        Assertions.assertEquals("blackUser", gameDAO.listGames().get(0).blackUsername());
+
+        gameDAO.close();
+        Assertions.assertEquals("blackUser", database.getGame(created.gameID()).blackUsername());
+    }
+
+    @Test
+    @DisplayName("Failed writes are retried and the game stays in memory until they succeed")
+    void failedWritesKept() throws DataAccessException, InvalidMoveException, InterruptedException {
+        boolean[] failing = {false};
+        MemoryGameDAO flaky = new MemoryGameDAO() {
+            @Override
+            public void updateGame(GameData gameData) throws DataAccessException {
+                if (failing[0]) {
+                    throw new DataAccessException("Error: database is down");
+                }
+                super.updateGame(gameData);
+            }
+        };
+        // flushes often and evicts anything idle
+        try (WriteBehindGameDAO dao = new WriteBehindGameDAO(flaky, 10, 1000, 0).start()) {
+            GameData created = dao.createGame(new GameData(0, "whiteUser", "blackUser", "testGame", new ChessGame()));
+            GameData loaded = dao.getGame(created.gameID());
+            ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+            loaded.game().makeMove(move);
+
+            failing[0] = true;
+            dao.recordMove(loaded, move);
+            Thread.sleep(200);
+
+            Assertions.assertTrue(dao.getFailedWrites() > 0);
+            Assertions.assertEquals(1, dao.getPendingWrites());
+            Assertions.assertEquals(1, dao.getResidentGames());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, dao.getGame(created.gameID()).game().getTeamTurn());
+
+            failing[0] = false;
+            dao.flush();
+            Assertions.assertEquals(0, dao.getPendingWrites());
+            Assertions.assertEquals(loaded.game(), flaky.getGame(created.gameID()).game());
+        }
+    }
+
+    @Test
+    @DisplayName("Updating a missing game fails right away")
+    void updateMissingGame() {
+        Assertions.assertThrows(DataAccessException.class,
+                () -> gameDAO.updateGame(new GameData(42, "whiteUser", "blackUser", "testGame", new ChessGame())));
+    }
+}
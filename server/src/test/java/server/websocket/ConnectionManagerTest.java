@@ -0,0 +1,96 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+
+public class ConnectionManagerTest {
+
+    private ConnectionManager manager;
+
+    @BeforeEach
+    public void setup() {
+        manager = new ConnectionManager(16, OutboundQueue.OverflowPolicy.COALESCE);
+    }
+
+    @Test
+    @DisplayName("Connections can be found by session and authToken")
+    void indexes() {
+        Session white = openSession();
+        Session observer = openSession();
+        manager.add("whiteToken", 1, white);
+        manager.add("observerToken", 1, observer);
+        manager.add("observerToken", 2, observer);
+
+        Assertions.assertEquals(1, manager.connectionsFor(white).size());
+        Assertions.assertEquals(2, manager.connectionsFor(observer).size());
+        Assertions.assertEquals(1, manager.connectionsFor("whiteToken").get(0).gameID);
+        Assertions.assertEquals(2, manager.connections.get(1).size());
+    }
+
+    @Test
+    @DisplayName("Closing a session removes it from every game and index")
+    void removeConnection() {
+        Session white = openSession();
+        Session observer = openSession();
+        manager.add("whiteToken", 1, white);
+        manager.add("observerToken", 1, observer);
+        manager.add("observerToken", 2, observer);
+
+        manager.removeConnection(observer);
+
+        Assertions.assertTrue(manager.connectionsFor(observer).isEmpty());
+        Assertions.assertTrue(manager.connectionsFor("observerToken").isEmpty());
+        Assertions.assertEquals(1, manager.connections.get(1).size());
+        Assertions.assertNull(manager.connections.get(2));
+    }
+
+    @Test
+    @DisplayName("Leaving a game only removes that game's connection")
+    void removeFromGame() {
+        Session observer = openSession();
+        manager.add("observerToken", 1, observer);
+        manager.add("observerToken", 2, observer);
+
+        manager.remove("observerToken", 1);
+
+        Assertions.assertNull(manager.connections.get(1));
+        Assertions.assertEquals(1, manager.connectionsFor(observer).size());
+        Assertions.assertEquals(2, manager.connectionsFor("observerToken").get(0).gameID);
+    }
+
+    @Test
+    @DisplayName("Closed sessions aren't added, and closing leaves a session's other games alone")
+    void closedSession() {
+        boolean[] open = {true};
+        Session session = session(open);
+        manager.add("token", 1, session);
+        manager.add("token", 2, session);
+
+        open[0] = false;
+        manager.add("token", 3, session);
+        Assertions.assertNull(manager.connections.get(3));
+
+        manager.removeConnection(session, 1);
+        Assertions.assertNull(manager.connections.get(1));
+        Assertions.assertEquals(1, manager.getOutboundStats().sessions());
+        manager.removeConnection(session, 2);
+        Assertions.assertTrue(manager.connectionsFor(session).isEmpty());
+        Assertions.assertEquals(0, manager.getOutboundStats().sessions());
+    }
+
+    private static Session openSession() {
+        return session(new boolean[]{true});
+    }
+
+    private static Session session(boolean[] open) {
+        return (Session) Proxy.newProxyInstance(ConnectionManagerTest.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open[0];
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,84 @@
+package server.websocket;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameExecutorTest {
+
+    private GameExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = new GameExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    @AfterEach
+    public void shutdown() throws InterruptedException {
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Commands for one game run in order, one at a time")
+    void serialPerGame() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int command = i;
+            executor.submit(1, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(command);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, overlaps.get());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("A slow game doesn't hold up other games")
+    void gamesRunInParallel() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherGame = new CountDownLatch(1);
+
+        executor.submit(1, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(2, otherGame::countDown);
+
+        Assertions.assertTrue(otherGame.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("A failing command doesn't stop the game's other commands")
+    void survivesFailure() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(1, () -> {
+            throw new IllegalStateException("bad command");
+        });
+        executor.submit(1, done::countDown);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
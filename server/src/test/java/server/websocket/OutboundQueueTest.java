@@ -0,0 +1,227 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+import websocket.FrameCodec;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutboundQueueTest {
+
+    private List<String> written;
+    private List<ByteBuffer> writtenBytes;
+    private List<WriteCallback> pendingWrites;
+    private boolean completeInline;
+    private boolean closed;
+    private OutboundQueue.Counters counters;
+    private Session session;
+
+    @BeforeEach
+    public void setup() {
+        written = new ArrayList<>();
+        writtenBytes = new ArrayList<>();
+        pendingWrites = new ArrayList<>();
+        completeInline = true;
+        closed = false;
+        counters = new OutboundQueue.Counters();
+
+        // a remote that either finishes writes right away or holds them until finishWrites
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    boolean text = method.getName().equals("sendString");
+                    if ((text || method.getName().equals("sendBytes")) && args.length == 2) {
+                        if (text) {
+                            written.add((String) args[0]);
+                        } else {
+                            writtenBytes.add((ByteBuffer) args[0]);
+                        }
+                        WriteCallback callback = (WriteCallback) args[1];
+                        if (completeInline) {
+                            callback.writeSuccess();
+                        } else {
+                            pendingWrites.add(callback);
+                        }
+                    }
+                    return null;
+                });
+        session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "close", "disconnect" -> {
+                        closed = true;
+                        yield null;
+                    }
+                    case "isOpen" -> !closed;
+                    default -> null;
+                });
+    }
+
+    @Test
+    @DisplayName("Messages go out in order")
+    void inOrder() {
+        OutboundQueue queue = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.DISCONNECT, counters);
+        for (int i = 0; i < 10; i++) {
+            queue.send("message " + i, ServerMessageType.NOTIFICATION, 1);
+        }
+
+        Assertions.assertEquals(10, written.size());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("message " + i, written.get(i));
+        }
+        Assertions.assertEquals(10, counters.sent.sum());
+    }
+
+    @Test
+    @DisplayName("A slow client's LOAD_GAMEs are coalesced")
+    void coalesce() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        queue.send("first", ServerMessageType.NOTIFICATION, 1);
+        queue.send("board 1", ServerMessageType.LOAD_GAME, 1);
+        queue.send("board 2", ServerMessageType.LOAD_GAME, 1);
+        queue.send("board 3", ServerMessageType.LOAD_GAME, 1);
+        Assertions.assertEquals(1, queue.depth());
+
+        finishWrites();
+        Assertions.assertEquals(List.of("first", "board 3"), written);
+        Assertions.assertEquals(2, counters.coalesced.sum());
+    }
+
+    @Test
+    @DisplayName("Coalescing only replaces the same game's boards")
+    void coalescePerGame() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 8, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        queue.send("first", ServerMessageType.NOTIFICATION, 1);
+        queue.send("game 1 board", ServerMessageType.LOAD_GAME, 1);
+        queue.send("game 2 delta", ServerMessageType.GAME_DELTA, 2);
+        queue.send("game 2 board", ServerMessageType.LOAD_GAME, 2);
+        queue.send("game 1 newer board", ServerMessageType.LOAD_GAME, 1);
+
+        finishWrites();
+        Assertions.assertEquals(List.of("first", "game 2 board", "game 1 newer board"), written);
+        Assertions.assertEquals(2, counters.coalesced.sum());
+    }
+
+    @Test
+    @DisplayName("A full queue doesn't drop another game's board")
+    void dropOnlySameGame() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 2, OutboundQueue.OverflowPolicy.DROP_OLDEST_LOAD_GAME, counters);
+        queue.send("first", ServerMessageType.NOTIFICATION, 1);
+        queue.send("game 1 board", ServerMessageType.LOAD_GAME, 1);
+        queue.send("game 2 board", ServerMessageType.LOAD_GAME, 2);
+        queue.send("game 2 newer board", ServerMessageType.LOAD_GAME, 2);
+
+        finishWrites();
+        Assertions.assertEquals(List.of("first", "game 1 board", "game 2 newer board"), written);
+        Assertions.assertFalse(closed);
+    }
+
+    @Test
+    @DisplayName("A full queue drops its oldest LOAD_GAME")
+    void dropOldestLoadGame() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 2, OutboundQueue.OverflowPolicy.DROP_OLDEST_LOAD_GAME, counters);
+        queue.send("first", ServerMessageType.NOTIFICATION, 1);
+        queue.send("board 1", ServerMessageType.LOAD_GAME, 1);
+        queue.send("note", ServerMessageType.NOTIFICATION, 1);
+        queue.send("board 2", ServerMessageType.LOAD_GAME, 1);
+
+        finishWrites();
+        Assertions.assertEquals(List.of("first", "note", "board 2"), written);
+        Assertions.assertEquals(1, counters.dropped.sum());
+        Assertions.assertFalse(closed);
+    }
+
+    @Test
+    @DisplayName("A client that falls too far behind gets disconnected")
+    void disconnect() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 2, OutboundQueue.OverflowPolicy.DISCONNECT, counters);
+        for (int i = 0; i < 4; i++) {
+            queue.send("message " + i, ServerMessageType.NOTIFICATION, 1);
+        }
+
+        Assertions.assertTrue(closed);
+        Assertions.assertEquals(1, counters.disconnected.sum());
+    }
+
+    @Test
+    @DisplayName("A failed write closes the session")
+    void writeFailed() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        queue.send("first", ServerMessageType.NOTIFICATION, 1);
+        queue.send("second", ServerMessageType.NOTIFICATION, 1);
+
+        pendingWrites.remove(0).writeFailed(new IOException("broken pipe"));
+        Assertions.assertTrue(closed);
+        Assertions.assertEquals(2, counters.dropped.sum());
+
+        queue.send("third", ServerMessageType.NOTIFICATION, 1);
+        Assertions.assertEquals(List.of("first"), written);
+    }
+
+    @Test
+    @DisplayName("closeWhenSent waits for the queued messages")
+    void closeWhenSent() {
+        completeInline = false;
+        OutboundQueue queue = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        queue.send("error", ServerMessageType.ERROR, 1);
+        queue.closeWhenSent();
+        Assertions.assertFalse(closed);
+
+        finishWrites();
+        Assertions.assertTrue(closed);
+    }
+
+    @Test
+    @DisplayName("Binary sessions get the payload encoded once")
+    void binary() {
+        OutboundQueue first = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        OutboundQueue second = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        first.useBinary(16);
+        second.useBinary(16);
+
+        String board = "{\"board\":\"" + "rnbqkbnr".repeat(20) + "\"}";
+        OutboundQueue.Payload payload = new OutboundQueue.Payload(board);
+        first.send(payload, ServerMessageType.LOAD_GAME, 1);
+        second.send(payload, ServerMessageType.LOAD_GAME, 1);
+
+        Assertions.assertTrue(written.isEmpty());
+        Assertions.assertEquals(2, writtenBytes.size());
+        Assertions.assertSame(writtenBytes.get(0).array(), writtenBytes.get(1).array());
+        byte[] frame = writtenBytes.get(0).array();
+        Assertions.assertEquals(FrameCodec.DEFLATED, frame[0]);
+        Assertions.assertEquals(board, FrameCodec.decode(frame, 1 << 16));
+    }
+
+    @Test
+    @DisplayName("Sessions with permessage-deflate get uncompressed binary frames")
+    void binaryWithoutCompression() {
+        OutboundQueue queue = new OutboundQueue(session, 4, OutboundQueue.OverflowPolicy.COALESCE, counters);
+        queue.useBinary(OutboundQueue.NEVER_COMPRESS);
+
+        String board = "{\"board\":\"" + "rnbqkbnr".repeat(20) + "\"}";
+        queue.send(board, ServerMessageType.LOAD_GAME, 1);
+
+        byte[] frame = writtenBytes.get(0).array();
+        Assertions.assertEquals(FrameCodec.PLAIN, frame[0]);
+        Assertions.assertEquals(board, FrameCodec.decode(frame, 1 << 16));
+    }
+
+    private void finishWrites() {
+        completeInline = true;
+        while (!pendingWrites.isEmpty()) {
+            pendingWrites.remove(0).writeSuccess();
+        }
+    }
+}
@@ -21,6 +21,19 @@ public class ChessBoard {
     );
 
     private final ChessPiece[][] squares = new ChessPiece[9][9];
+
+    // bitboards mirroring squares, one bit per square (see ChessPosition.getSquare)
+    // pieceMasks is indexed by maskIndex(color, type), colorMasks by color ordinal.
+    // transient so gson leaves them out; they're rebuilt from squares the first time they're needed.
+    // pieceMasks is volatile and written last, a thread that sees it set sees the others built too
+    // (a board being changed still belongs to one thread, moves aren't published this way)
+    private transient volatile long[] pieceMasks;
+    private transient long[] colorMasks;
+    private transient long occupied;
+
+    // Zobrist key of the pieces on the board (see Zobrist), kept up to date along with the masks
+    private transient long zobristKey;
+
     public ChessBoard() {
         // just initializes empty board, reset board does the rest
     }
@@ -32,7 +45,21 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()][position.getColumn()] = piece;
+        int row = position.getRow();
+        int col = position.getColumn();
+        ChessPiece previous = squares[row][col];
+        squares[row][col] = piece;
+
+        // keep the masks in sync if they've already been built
+        if (pieceMasks != null && row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+            int square = position.getSquare();
+            if (previous != null) {
+                clearBit(previous, square);
+            }
+            if (piece != null) {
+                setBit(piece, square);
+            }
+        }
     }
 
     /**
@@ -46,6 +73,197 @@ public class ChessBoard {
         return squares[position.getRow()][position.getColumn()];
     }
 
+    /**
+     * Gets a chess piece on the chessboard by square index
+     *
+     * @param square the square index (0 = a1, 63 = h8)
+     * @return Either the piece on the square, or null if the square is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[(square >>> 3) + 1][(square & 7) + 1];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color and type
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureMasks();
+        return pieceMasks[maskIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color
+     */
+    public long getPieces(ChessGame.TeamColor color) {
+        ensureMasks();
+        return colorMasks[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupied() {
+        ensureMasks();
+        return occupied;
+    }
+
+    /**
+     * @return Zobrist key of the pieces on the board, equal boards always have equal keys
+     */
+    public long getZobristKey() {
+        ensureMasks();
+        return zobristKey;
+    }
+
+    private static int maskIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    private void setBit(ChessPiece piece, int square) {
+        long bit = 1L << square;
+        pieceMasks[maskIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+        colorMasks[piece.getTeamColor().ordinal()] |= bit;
+        occupied |= bit;
+        zobristKey ^= Zobrist.piece(piece, square);
+    }
+
+    private void clearBit(ChessPiece piece, int square) {
+        long bit = 1L << square;
+        pieceMasks[maskIndex(piece.getTeamColor(), piece.getPieceType())] &= ~bit;
+        colorMasks[piece.getTeamColor().ordinal()] &= ~bit;
+        occupied &= ~bit;
+        zobristKey ^= Zobrist.piece(piece, square);
+    }
+
+    private void ensureMasks() {
+        if (pieceMasks != null) {
+            return;
+        }
+
+        // first use (or just deserialized), build the masks from the squares. pieceMasks says
+        // they're built, so the volatile write to it goes after everything else
+        long[] pieces = new long[12];
+        long[] colors = new long[2];
+        long all = 0L;
+        long key = 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = getPiece(square);
+            if (piece != null) {
+                long bit = 1L << square;
+                pieces[maskIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+                colors[piece.getTeamColor().ordinal()] |= bit;
+                all |= bit;
+                key ^= Zobrist.piece(piece, square);
+            }
+        }
+        colorMasks = colors;
+        occupied = all;
+        zobristKey = key;
+        pieceMasks = pieces;
+    }
+
+    /**
+     * Creates a board from the piece placement field of a FEN string (e.g.
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"). Anything after the first space is ignored,
+     * so a whole FEN works too.
+     *
+     * @param fen FEN string or its piece placement field
+     * @return the board
+     * @throws IllegalArgumentException if the placement isn't valid FEN
+     */
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int column = 1;
+        for (int i = 0; i < fen.length(); i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') {
+                break;
+            }
+            if (c == '/') {
+                if (column != 9) {
+                    throw new IllegalArgumentException("FEN row " + row + " doesn't have 8 squares: " + fen);
+                }
+                row--;
+                column = 1;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                ChessPiece piece = fenPiece(c);
+                if (piece == null) {
+                    throw new IllegalArgumentException("unknown FEN piece '" + c + "': " + fen);
+                }
+                if (row < 1 || column > 8) {
+                    throw new IllegalArgumentException("FEN piece placement out of bounds: " + fen);
+                }
+                board.addPiece(ChessPosition.of(row, column), piece);
+                column++;
+            }
+            if (column > 9) {
+                throw new IllegalArgumentException("FEN row " + row + " has more than 8 squares: " + fen);
+            }
+        }
+        if (row != 1 || column != 9) {
+            throw new IllegalArgumentException("FEN piece placement doesn't cover the board: " + fen);
+        }
+        return board;
+    }
+
+    /**
+     * @return the piece placement field of FEN for this board, white pieces in upper case
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(72);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = squares[row][col];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(fenChar(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        return fen.toString();
+    }
+
+    private static ChessPiece fenPiece(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'k' -> ChessPiece.PieceType.KING;
+            default -> null;
+        };
+        return type == null ? null : ChessPiece.of(color, type);
+    }
+
+    private static char fenChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case PAWN -> 'p';
+            case KNIGHT -> 'n';
+            case BISHOP -> 'b';
+            case ROOK -> 'r';
+            case QUEEN -> 'q';
+            case KING -> 'k';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
     @Override
     public String toString() {
         return "ChessBoard{" +
@@ -94,8 +312,8 @@ public class ChessBoard {
                     ChessPiece.PieceType type = CHAR_TO_TYPE_MAP.get(Character.toLowerCase(c));
 
                     // create a piece
-                    ChessPosition position = new ChessPosition(row, column);
-                    ChessPiece piece = new ChessPiece(color, type);
+                    ChessPosition position = ChessPosition.of(row, column);
+                    ChessPiece piece = ChessPiece.of(color, type);
 
                     // add piece to board
                     addPiece(position, piece);
@@ -117,6 +335,7 @@ public class ChessBoard {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        // the Zobrist key is kept up to date on every addPiece, no need to walk the squares
+        return Long.hashCode(getZobristKey());
     }
 }
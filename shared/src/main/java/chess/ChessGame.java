@@ -1,6 +1,8 @@
 package chess;
 
-import java.util.ArrayList;
+import chess.piece.AttackTables;
+import chess.piece.PackedMove;
+
 import java.util.Collection;
 import java.util.Objects;
 
@@ -27,11 +29,18 @@ public class ChessGame {
         printBoard();
     }
 
+    // for restoring a saved game without setting up (and printing) a new board first
+    ChessGame(ChessBoard board, TeamColor teamTurn, boolean gameOver) {
+        this.board = board;
+        this.teamTurn = teamTurn;
+        this.gameOver = gameOver;
+    }
+
     private void printBoard() {
         for (int row = 8; row >= 1; row--) {
             System.out.println(row + " ");
             for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
                 if (piece == null) {
                     System.out.println("");
                 } else {
@@ -97,32 +106,22 @@ public class ChessGame {
             return null;
         }
 
-        // get possible moves and add valid ones (that don't leave king in check)
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition);
-        ArrayList<ChessMove> validMoves = new ArrayList<>();
-        TeamColor pieceColor = piece.getTeamColor();
-
-        for (ChessMove move : possibleMoves) {
-//            System.out.println("Checking move: " + move.getStartPosition().getRow() + "," + move.getStartPosition().getColumn() +
-//                    " -> " + move.getEndPosition().getRow() + "," + move.getEndPosition().getColumn());
-            ChessPiece captured = board.getPiece(move.getEndPosition());
-
-            // temporarily apply move to the board
-            tempMoves(move, piece, captured, true);
-
-            if (!isInCheck(pieceColor)) {
-                // king not in check, add it to valid moves
-                validMoves.add(move);
-                System.out.println("move is valid");
-            } else {
-                System.out.println("move would leave king in check");
-            }
+        // legal moves are worked out once per position and team, then shared through the cache
+        return status(piece.getTeamColor()).legalMoves(startPosition.getSquare());
+    }
 
-            // undo temporary move aka put board back
-            tempMoves(move, piece, captured, false);
-        }
+    /**
+     * Gets every valid move for a team
+     *
+     * @param teamColor the team to get valid moves for
+     * @return Set of valid moves for all of the team's pieces
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        return status(teamColor).legalMoves();
+    }
 
-        return validMoves;
+    private PositionCache.Entry status(TeamColor teamColor) {
+        return PositionCache.shared().lookup(board, teamColor);
     }
 
     private void tempMoves(ChessMove move, ChessPiece piece, ChessPiece captured, boolean applyMove) {
@@ -149,6 +148,20 @@ public class ChessGame {
         System.out.println("Start position: row=" + move.getStartPosition().getRow() + ", col=" + move.getStartPosition().getColumn());
         System.out.println("End position: row=" + move.getEndPosition().getRow() + ", col=" + move.getEndPosition().getColumn());
 
+        applyMove(move);
+
+        System.out.println("Board after move: ");
+        printBoard();
+    }
+
+    /**
+     * Makes a move like makeMove but without printing anything, for replaying moves that were
+     * already made (loading a game's logged moves, or a client applying a move the server sent)
+     *
+     * @param move chess move to preform
+     * @throws InvalidMoveException if move is invalid
+     */
+    public void applyMove(ChessMove move) throws InvalidMoveException {
         // check if the game is over
         if (gameOver) {
             throw new InvalidMoveException("Game is over");
@@ -164,9 +177,9 @@ public class ChessGame {
             throw new InvalidMoveException("not your turn");
         }
 
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-
-        if (validMoves == null || !validMoves.contains(move)) {
+        // compare packed moves with the cached legal ones, no need to build ChessMoves for them
+        int packedMove = PackedMove.fromChessMove(move);
+        if (packedMove == PackedMove.NONE || !status(piece.getTeamColor()).isLegal(packedMove)) {
             // not a valid move
             throw new InvalidMoveException("not a valid move");
         }
@@ -174,7 +187,7 @@ public class ChessGame {
         // check if move is a pawn promotion move
         if (piece.getPieceType() == ChessPiece.PieceType.PAWN &&
                 (move.getEndPosition().getRow() == 8 || move.getEndPosition().getRow() == 1)) {
-            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
+            piece = ChessPiece.of(piece.getTeamColor(), move.getPromotionPiece());
         }
 
         // add piece to new pos and remove it from old pos
@@ -185,14 +198,11 @@ public class ChessGame {
 
         // after moving, check for any game end conditions
         checkGameEndConditions();
-
-        System.out.println("Board after move: ");
-        printBoard();
     }
 
     private void checkGameEndConditions() {
-        if (isInCheckmate(TeamColor.WHITE) || isInCheckmate(TeamColor.BLACK) ||
-        isInStalemate(TeamColor.WHITE) || isInStalemate(TeamColor.BLACK)) {
+        // only the team about to move can be out of moves (checkmate if in check, otherwise stalemate)
+        if (!status(teamTurn).hasLegalMove()) {
             // set gameOver to true
             gameOver = true;
         }
@@ -219,48 +229,31 @@ public class ChessGame {
             throw new RuntimeException("invalid board... no king found");
         }
 
-        TeamColor opColor = ((teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE);
-
-        // for opposite team's current positions, check if any can capture the king
-        for (ChessPosition position : findAllPositions()) {
-            ChessPiece currPiece = board.getPiece(position);
-            if (currPiece != null && currPiece.getTeamColor() == opColor) {
-                Collection<ChessMove> possibleMoves = currPiece.pieceMoves(board, position);
-
-                // check if any of the possibleMoves go to the king's position
-                for (ChessMove move : possibleMoves) {
-                    // return if the king is in check
-                    if (move.getEndPosition().equals(kingPos)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        // king is not in check
-        return false;
+        // cached along with the team's moves for this position
+        return status(teamColor).isInCheck();
     }
 
-    private Iterable<ChessPosition> findAllPositions() {
-        ArrayList<ChessPosition> allPositions = new ArrayList<>();
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                allPositions.add(new ChessPosition(row, col));
-            }
-        }
-        return allPositions;
+    /**
+     * Determines if any piece of the given team could capture on a square
+     *
+     * @param position the square to check
+     * @param attackingColor which team to look for attackers from
+     * @return True if the square is attacked by the given team
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor attackingColor) {
+        return AttackTables.isSquareAttacked(board, position.getSquare(), attackingColor);
     }
 
+    // the king's square comes straight from the board's king mask, which addPiece (and so
+    // makeMove/tempMoves) keeps up to date, so there's nothing to search for
     public ChessPosition getKing(TeamColor teamColor) {
-        for (ChessPosition currPos : findAllPositions()) {
-            ChessPiece currPiece = board.getPiece(currPos);
-            if (currPiece != null && currPiece.getPieceType() == ChessPiece.PieceType.KING
-                    && currPiece.getTeamColor() == teamColor) {
-                // found the king's position, return it
-                return currPos;
-            }
+        long kingMask = board.getPieces(teamColor, ChessPiece.PieceType.KING);
+        if (kingMask == 0) {
+            // if for some reason the board is invalid, return null
+            return null;
         }
-        // if for some reason the board is invalid, return null
-        return null;
+        // found the king's position, return it
+        return ChessPosition.fromSquare(Long.numberOfTrailingZeros(kingMask));
     }
 
     /**
@@ -271,7 +264,7 @@ public class ChessGame {
      */
     public boolean isInCheckmate(TeamColor teamColor) {
         // return true if the king is in check and there are no legal moves left
-        return isInCheck(teamColor) && hasNoMovesLeft(teamColor);
+        return isInCheck(teamColor) && !status(teamColor).hasLegalMove();
     }
 
     /**
@@ -283,26 +276,7 @@ public class ChessGame {
      */
     public boolean isInStalemate(TeamColor teamColor) {
         // return true if the king is not in check and there are no legal moves left
-        return !isInCheck(teamColor) && hasNoMovesLeft(teamColor);
-    }
-
-    private boolean hasNoMovesLeft(TeamColor teamColor) {
-        // see if any pieces for the given team have any legal moves left
-        for (ChessPosition currPos : findAllPositions()) {
-            ChessPiece currPiece = board.getPiece(currPos);
-
-            if (currPiece != null && currPiece.getTeamColor() == teamColor) {
-                // check if any pieces have valid moves
-                Collection<ChessMove> possibleMoves = validMoves(currPos);
-
-                // found valid move
-                if (!possibleMoves.isEmpty()){
-                    return false;
-                }
-            }
-        }
-        // no valid moves found
-        return true;
+        return !isInCheck(teamColor) && !status(teamColor).hasLegalMove();
     }
 
     /**
@@ -324,6 +298,50 @@ public class ChessGame {
     }
 
 
+    /**
+     * Creates a game from a FEN string. Piece placement and side to move are required; this
+     * engine has no castling or en passant, so those fields and the move counters are skipped.
+     *
+     * @param fen FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1"
+     * @return the game
+     * @throws IllegalArgumentException if the FEN isn't valid
+     */
+    public static ChessGame fromFen(String fen) {
+        fen = fen.trim();
+        int space = fen.indexOf(' ');
+        if (space < 0 || space + 1 >= fen.length()) {
+            throw new IllegalArgumentException("FEN needs at least piece placement and side to move: " + fen);
+        }
+
+        TeamColor teamTurn = switch (fen.charAt(space + 1)) {
+            case 'w' -> TeamColor.WHITE;
+            case 'b' -> TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("FEN side to move must be w or b: " + fen);
+        };
+        if (space + 2 < fen.length() && fen.charAt(space + 2) != ' ') {
+            throw new IllegalArgumentException("FEN side to move must be w or b: " + fen);
+        }
+        return new ChessGame(ChessBoard.fromFen(fen), teamTurn, false);
+    }
+
+    /**
+     * @return the game as FEN, with no castling or en passant and the move counters at 0 1
+     */
+    public String toFen() {
+        return board.toFen() + (teamTurn == TeamColor.WHITE ? " w - - 0 1" : " b - - 0 1");
+    }
+
+    /**
+     * Gets the Zobrist key of the current position: the board's pieces and whose turn it is.
+     * The board updates its part on every move, so this is cheap enough to call after each
+     * one (e.g. for repetition detection or caching positions)
+     *
+     * @return 64-bit key, equal positions always have equal keys
+     */
+    public long getZobristKey() {
+        return board.getZobristKey() ^ Zobrist.sideToMove(teamTurn);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessGame chessGame)) {
@@ -334,6 +352,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, teamTurn);
+        return Long.hashCode(getZobristKey());
     }
 }
\ No newline at end of file
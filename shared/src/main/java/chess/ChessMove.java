@@ -10,6 +10,11 @@ import java.util.Objects;
  */
 public class ChessMove {
 
+    // shared instances for moves between squares on the board, indexed by start square,
+    // end square and promotion (0 for none, otherwise PieceType ordinal + 1). Filled in
+    // the first time each move is asked for; two threads racing just both create it.
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64 * 7];
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -21,6 +26,37 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Gets a move without creating one when it's between two squares on the board. Moves are
+     * immutable, so each one only needs a single shared instance.
+     *
+     * @return the move from start to end with the given promotion (null for none)
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        int start = square(startPosition);
+        int end = square(endPosition);
+        if (start < 0 || end < 0) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+
+        int index = ((start << 6) | end) * 7 + (promotionPiece == null ? 0 : promotionPiece.ordinal() + 1);
+        ChessMove move = MOVES[index];
+        if (move == null) {
+            move = new ChessMove(ChessPosition.fromSquare(start), ChessPosition.fromSquare(end), promotionPiece);
+            MOVES[index] = move;
+        }
+        return move;
+    }
+
+    private static int square(ChessPosition position) {
+        if (position == null || position.getRow() < 1 || position.getRow() > 8
+                || position.getColumn() < 1 || position.getColumn() > 8) {
+            return -1;
+        }
+        return position.getSquare();
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -48,6 +84,9 @@ public class ChessMove {
     // override equals() to specify that two objects are equal if both the start and end positions are equal
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof ChessMove chessMove)) {
             return false;
         }
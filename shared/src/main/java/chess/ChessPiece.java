@@ -13,6 +13,17 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    // one shared instance per color and type, indexed [color ordinal][type ordinal]
+    private static final ChessPiece[][] PIECES = new ChessPiece[2][6];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal()][type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -21,6 +32,16 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared piece for a color and type. Pieces are immutable, so there only needs to
+     * be one of each.
+     *
+     * @return the piece of the given color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal()][type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -55,37 +76,16 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        PieceMovesCalculator calculator = null;
-
-        switch (type) {
-            case BISHOP:
-                // find where other pieces on board are located
-                // calculate all the moves possible
-                calculator = new BishopMovesCalculator();
-                break;
-            case KING:
-                calculator = new KingMovesCalculator();
-                break;
-            case KNIGHT:
-                calculator = new KnightMovesCalculator();
-                break;
-            case PAWN:
-                calculator = new PawnMovesCalculator();
-                break;
-            case QUEEN:
-                calculator = new QueenMovesCalculator();
-                break;
-            case ROOK:
-                calculator = new RookMovesCalculator();
-                break;
-            default:
-                System.out.println("unrecognized piece: " + type);
-        }
+        // shared bitboard calculator for the type, uses the precomputed attack tables
+        PieceMovesCalculator calculator = BitboardMovesCalculator.of(type);
         return calculator.calculateMoves(board, myPosition, pieceColor);
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof ChessPiece that)) {
             return false;
         }
@@ -10,6 +10,15 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    // one shared instance per square on the board, indexed by square (see getSquare)
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,8 +27,21 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets a position without creating one. Positions are immutable, so every square on the
+     * board has one shared instance; positions off the board are created as usual.
+     *
+     * @return the position for the given row and column
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
     public ChessPosition update(int x, int y) {
-        return new ChessPosition(this.row + y, this.col + x);
+        return of(this.row + y, this.col + x);
     }
 
     /**
@@ -38,9 +60,28 @@ public class ChessPosition {
         return col;
     }
 
+    /**
+     * @return the square index of this position, 0 for a1 through 63 for h8
+     * (the bit used for this position in ChessBoard's bitboards)
+     */
+    public int getSquare() {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @param square square index, 0 for a1 through 63 for h8
+     * @return the position for the given square index
+     */
+    public static ChessPosition fromSquare(int square) {
+        return SQUARES[square];
+    }
+
     // override equals() to specify that two positions are equal if they have the same row and col values
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (!(o instanceof ChessPosition that)) {
             return false;
         }
@@ -0,0 +1,84 @@
+package chess;
+
+/**
+ * Compact binary form of a ChessGame, for storing games without JSON.
+ * <pre>
+ * byte 0      format version (currently 1)
+ * byte 1      flags: bit 0 = black to move, bit 1 = game over
+ * bytes 2-33  the 64 squares, 4 bits each, a1 first, low nibble first
+ * </pre>
+ * A square's nibble is 0 when empty, otherwise PieceType ordinal + 1, plus 8 for black
+ * pieces. That's 34 bytes for any game, versus a couple of kilobytes of JSON.
+ */
+public final class GameCodec {
+    public static final byte VERSION = 1;
+    public static final int LENGTH = 34;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int BLACK_PIECE = 8;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private GameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[LENGTH];
+        bytes[0] = VERSION;
+
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isGameOver()) {
+            flags |= GAME_OVER;
+        }
+        bytes[1] = (byte) flags;
+
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                int nibble = piece.getPieceType().ordinal() + 1;
+                if (piece.getTeamColor() == ChessGame.TeamColor.BLACK) {
+                    nibble |= BLACK_PIECE;
+                }
+                bytes[2 + square / 2] |= (byte) (nibble << ((square & 1) * 4));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes aren't a game in a version this reads
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("no game data");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("unknown game format version " + bytes[0]);
+        }
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("game data should be " + LENGTH + " bytes, got " + bytes.length);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int nibble = (bytes[2 + square / 2] >>> ((square & 1) * 4)) & 0xF;
+            if (nibble == 0) {
+                continue;
+            }
+            int type = (nibble & 7) - 1;
+            if (type < 0 || type >= TYPES.length) {
+                throw new IllegalArgumentException("bad piece " + nibble + " on square " + square);
+            }
+            ChessGame.TeamColor color = (nibble & BLACK_PIECE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            board.addPiece(ChessPosition.fromSquare(square), ChessPiece.of(color, TYPES[type]));
+        }
+
+        ChessGame.TeamColor teamTurn = (bytes[1] & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return new ChessGame(board, teamTurn, (bytes[1] & GAME_OVER) != 0);
+    }
+}
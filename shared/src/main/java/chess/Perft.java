@@ -0,0 +1,186 @@
+package chess;
+
+import chess.piece.LegalMoveGenerator;
+import chess.piece.MoveList;
+import chess.piece.PackedMove;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perft (performance test) for the move generator: counts every sequence of legal moves
+ * to a fixed depth from a position. The counts for well known positions are published,
+ * so a mismatch points at a move generation bug, and nodes/sec measures its speed.
+ * <p>
+ * Usage: {@code Perft "<fen>" <depth> [divide]}
+ * <p>
+ * Note: this engine doesn't implement castling or en passant, so the castling and en
+ * passant fields of the FEN are ignored, and counts only match published ones to depths
+ * where neither move is possible.
+ */
+public class Perft {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private final ChessBoard board;
+    private final ChessGame.TeamColor teamTurn;
+
+    // one move list per ply, reused for every position at that ply
+    private MoveList[] moveLists = new MoveList[0];
+
+    public Perft(ChessBoard board, ChessGame.TeamColor teamTurn) {
+        this.board = board;
+        this.teamTurn = teamTurn;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the FEN isn't valid
+     */
+    public static Perft fromFen(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        return new Perft(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @return the board being counted from, it's back in its starting position after each count
+     */
+    public ChessBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * @return number of leaf positions reached by every sequence of depth legal moves
+     */
+    public long perft(int depth) {
+        return perft(teamTurn, depth);
+    }
+
+    /**
+     * @return perft count below each legal root move, in generation order
+     * @throws IllegalArgumentException if depth is less than 1, there's no root move to divide by
+     */
+    public Map<ChessMove, Long> divide(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("divide needs a depth of at least 1, got " + depth);
+        }
+        ensureMoveLists(depth);
+        MoveList moves = moveLists[depth];
+        moves.clear();
+        new LegalMoveGenerator(board, teamTurn).generate(moves);
+
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            ChessPiece captured = makeMove(move);
+            counts.put(PackedMove.toChessMove(move), depth == 1 ? 1L : perft(opposite(teamTurn), depth - 1));
+            unmakeMove(move, captured);
+        }
+        return counts;
+    }
+
+    private long perft(ChessGame.TeamColor color, int depth) {
+        if (depth == 0) {
+            return 1L;
+        }
+
+        ensureMoveLists(depth);
+        MoveList moves = moveLists[depth];
+        moves.clear();
+        new LegalMoveGenerator(board, color).generate(moves);
+        if (depth == 1) {
+            // bulk count at the last ply, no need to make the moves
+            return moves.size();
+        }
+
+        long nodes = 0L;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            ChessPiece captured = makeMove(move);
+            nodes += perft(opposite(color), depth - 1);
+            unmakeMove(move, captured);
+        }
+        return nodes;
+    }
+
+    private void ensureMoveLists(int depth) {
+        if (moveLists.length <= depth) {
+            MoveList[] lists = Arrays.copyOf(moveLists, depth + 1);
+            for (int i = moveLists.length; i < lists.length; i++) {
+                lists[i] = new MoveList();
+            }
+            moveLists = lists;
+        }
+    }
+
+    private ChessPiece makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = board.getPiece(from);
+        ChessPiece captured = board.getPiece(to);
+        if (PackedMove.promotion(move) != null) {
+            piece = ChessPiece.of(piece.getTeamColor(), PackedMove.promotion(move));
+        }
+        board.addPiece(ChessPosition.fromSquare(to), piece);
+        board.addPiece(ChessPosition.fromSquare(from), null);
+        return captured;
+    }
+
+    private void unmakeMove(int move, ChessPiece captured) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece piece = board.getPiece(to);
+        if (PackedMove.promotion(move) != null) {
+            piece = ChessPiece.of(piece.getTeamColor(), ChessPiece.PieceType.PAWN);
+        }
+        board.addPiece(ChessPosition.fromSquare(from), piece);
+        board.addPiece(ChessPosition.fromSquare(to), captured);
+    }
+
+    private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: Perft \"<fen>\" <depth> [divide]");
+            return;
+        }
+
+        Perft perft = fromFen(args[0]);
+        int depth = Integer.parseInt(args[1]);
+        boolean divide = args.length > 2 && args[2].equals("divide");
+        // divide needs at least one root move to split the count by
+        int minDepth = divide ? 1 : 0;
+        if (depth < minDepth) {
+            System.out.println("Usage: Perft \"<fen>\" <depth> [divide], depth at least " + minDepth);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long nodes = 0L;
+        if (divide) {
+            // print the count below each root move, handy for finding where two generators disagree
+            for (var entry : perft.divide(depth).entrySet()) {
+                ChessMove move = entry.getKey();
+                String promotion = move.getPromotionPiece() == null ? ""
+                        : String.valueOf(Character.toLowerCase(move.getPromotionPiece().name().charAt(0)));
+                if (move.getPromotionPiece() == ChessPiece.PieceType.KNIGHT) {
+                    promotion = "n";
+                }
+                System.out.println(squareName(move.getStartPosition()) + squareName(move.getEndPosition())
+                        + promotion + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft.perft(depth);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("depth " + depth + ": " + nodes + " nodes");
+        System.out.printf("%.3f s, %.0f nodes/sec%n", elapsed / 1e9, nodes / Math.max(elapsed / 1e9, 1e-9));
+    }
+}
@@ -0,0 +1,243 @@
+package chess;
+
+import chess.piece.LegalMoveGenerator;
+import chess.piece.MoveList;
+import chess.piece.PackedMove;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size cache of legal moves and check status per position, keyed by the position's
+ * Zobrist key with the team to move XORed in (see ChessGame.getZobristKey).
+ * <p>
+ * One cache is shared by every game in the JVM, so games that reach the same position
+ * (popular openings especially) only generate its moves once. The table is open addressed
+ * in buckets of {@link #BUCKET_SIZE} slots and never locks: entries are immutable and
+ * swapped in with compareAndSet. A new entry takes an empty slot in its bucket if there
+ * is one, otherwise it replaces the bucket's least recently stored entry. Losing a race
+ * only means the position gets generated again.
+ * <p>
+ * Entries also keep where each color's pieces are, and a key match is only a hit if those
+ * match the board too. Two positions sharing a key then can't be handed each other's moves.
+ */
+public class PositionCache {
+    static final int BUCKET_SIZE = 4;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final PositionCache SHARED = new PositionCache(
+            Integer.getInteger("chess.positionCache.capacity", DEFAULT_CAPACITY));
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int bucketMask;
+    private final AtomicLong stamps = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity max number of positions to keep, rounded up to a power of two
+     */
+    public PositionCache(int capacity) {
+        if (capacity < BUCKET_SIZE) {
+            throw new IllegalArgumentException("capacity must be at least " + BUCKET_SIZE);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.bucketMask = size / BUCKET_SIZE - 1;
+    }
+
+    /**
+     * @return the cache shared by every game, sized by the chess.positionCache.capacity
+     * system property
+     */
+    public static PositionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the cached entry for a team to move on a board, generating and storing it on a miss
+     *
+     * @param board     the position
+     * @param teamColor the team to move
+     * @return legal moves and check status for the team
+     */
+    public Entry lookup(ChessBoard board, ChessGame.TeamColor teamColor) {
+        return lookup(board, teamColor, board.getZobristKey() ^ Zobrist.sideToMove(teamColor));
+    }
+
+    // the key is a parameter so tests can make two positions collide
+    Entry lookup(ChessBoard board, ChessGame.TeamColor teamColor, long key) {
+        long white = board.getPieces(ChessGame.TeamColor.WHITE);
+        long black = board.getPieces(ChessGame.TeamColor.BLACK);
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            Entry entry = table.get(i);
+            if (entry != null && entry.key == key && entry.white == white && entry.black == black) {
+                hits.increment();
+                return entry;
+            }
+        }
+
+        misses.increment();
+        Entry entry = generate(key, white, black, board, teamColor);
+        store(bucket, entry);
+        return entry;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of positions stored right now, never more than the capacity
+     */
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes every entry (the hit and miss counts are kept)
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+    }
+
+    private int bucket(long key) {
+        // the low bits of a Zobrist key are as random as any, mix in the high ones anyway
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+    private Entry generate(long key, long white, long black, ChessBoard board, ChessGame.TeamColor teamColor) {
+        LegalMoveGenerator generator = new LegalMoveGenerator(board, teamColor);
+        MoveList moveList = new MoveList();
+        generator.generate(moveList);
+        int[] moves = moveList.toArray();
+
+        // moves come out grouped by start square in ascending order, remember where each group starts
+        int[] offsets = new int[65];
+        int next = 0;
+        for (int square = 0; square < 64; square++) {
+            offsets[square] = next;
+            while (next < moves.length && PackedMove.from(moves[next]) == square) {
+                next++;
+            }
+        }
+        offsets[64] = next;
+
+        return new Entry(key, white, black, moves, offsets, generator.isInCheck(), stamps.incrementAndGet());
+    }
+
+    private void store(int bucket, Entry entry) {
+        int victim = bucket;
+        Entry victimEntry = table.get(bucket);
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            Entry current = table.get(i);
+            if (current == null) {
+                victim = i;
+                victimEntry = null;
+                break;
+            }
+            if (current.stamp < victimEntry.stamp) {
+                victim = i;
+                victimEntry = current;
+            }
+        }
+        // if another thread changed the slot since we looked, let its entry win
+        table.compareAndSet(victim, victimEntry, entry);
+    }
+
+    /**
+     * Everything cached for one team to move in one position. Immutable, so it can be
+     * handed to any number of threads. Moves are kept packed (see PackedMove) and only
+     * turned into ChessMoves when asked for.
+     */
+    public static final class Entry {
+        private final long key;
+        // each color's pieces, to tell apart positions that share a key
+        private final long white;
+        private final long black;
+        private final int[] moves;
+        private final int[] offsets;
+        private final boolean inCheck;
+        private final long stamp;
+
+        private Entry(long key, long white, long black, int[] moves, int[] offsets, boolean inCheck, long stamp) {
+            this.key = key;
+            this.white = white;
+            this.black = black;
+            this.moves = moves;
+            this.offsets = offsets;
+            this.inCheck = inCheck;
+            this.stamp = stamp;
+        }
+
+        /**
+         * @return every legal move for the team, as a new list
+         */
+        public ArrayList<ChessMove> legalMoves() {
+            return toChessMoves(0, moves.length);
+        }
+
+        /**
+         * @return legal moves of the piece on the given square, as a new list
+         */
+        public ArrayList<ChessMove> legalMoves(int square) {
+            return toChessMoves(offsets[square], offsets[square + 1]);
+        }
+
+        /**
+         * @return True if the packed move is legal, whatever its flags
+         */
+        public boolean isLegal(int move) {
+            int square = PackedMove.from(move);
+            for (int i = offsets[square]; i < offsets[square + 1]; i++) {
+                if (PackedMove.sameMove(moves[i], move)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int moveCount() {
+            return moves.length;
+        }
+
+        public boolean hasLegalMove() {
+            return moves.length > 0;
+        }
+
+        public boolean isInCheck() {
+            return inCheck;
+        }
+
+        public boolean isCheckmate() {
+            return inCheck && moves.length == 0;
+        }
+
+        public boolean isStalemate() {
+            return !inCheck && moves.length == 0;
+        }
+
+        private ArrayList<ChessMove> toChessMoves(int start, int end) {
+            ArrayList<ChessMove> chessMoves = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                chessMoves.add(PackedMove.toChessMove(moves[i]));
+            }
+            return chessMoves;
+        }
+    }
+}
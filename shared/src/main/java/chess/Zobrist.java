@@ -0,0 +1,46 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for Zobrist hashing. A position's key is the XOR of the key for each
+ * piece on its square, plus the side to move key when it's black's turn, so moving a piece
+ * only takes a couple of XORs to update it.
+ * <p>
+ * The keys come from a fixed seed so the same position gets the same key on every run
+ * (and on both the client and the server).
+ */
+public final class Zobrist {
+    private static final long SEED = 0x5EED_C4E5_5L;
+
+    // indexed [color * 6 + type][square], same layout as ChessBoard's piece masks
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return key for the piece standing on the square (0 = a1, 63 = h8)
+     */
+    public static long piece(ChessPiece piece, int square) {
+        return PIECE_KEYS[piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal()][square];
+    }
+
+    /**
+     * @return key to XOR in when it's the given team's turn
+     */
+    public static long sideToMove(ChessGame.TeamColor teamTurn) {
+        return teamTurn == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+}
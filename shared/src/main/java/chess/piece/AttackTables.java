@@ -0,0 +1,258 @@
+package chess.piece;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Precomputed attack bitboards for every piece type.
+ * <p>
+ * Squares are indexed 0 (a1) through 63 (h8), matching ChessPosition.getSquare and
+ * ChessBoard's masks. Knight, king and pawn attacks are plain lookups. Rook and bishop
+ * attacks use magic bitboards: the blockers on a square's rays are multiplied by a magic
+ * number that maps every blocker subset to its own slot in that square's attack table.
+ * The magic numbers were found by a seeded random search and are fixed here so the tables
+ * only need to be filled at startup, not searched for.
+ */
+public final class AttackTables {
+    private static final int[][] KNIGHT_DIRECTIONS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_DIRECTIONS = {{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {1, 0}, {-1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, -1}, {-1, 1}};
+
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x1080018440021120L, 0x2040200040001000L, 0x0B00084100600290L, 0x0080100080080004L,
+            0x0280180004000280L, 0x92000200040810C1L, 0x1080020001002080L, 0x0100021048802100L,
+            0x1052800040002082L, 0x4020C01001200041L, 0x2002801000802001L, 0x0061001000210008L,
+            0x0020800400080080L, 0x006A001044220008L, 0x0D44808002000100L, 0x0201001180620500L,
+            0x0100308000400080L, 0x409009400041A000L, 0x0000110040200101L, 0x8100210008100102L,
+            0x41A8004040040200L, 0x2000808002000400L, 0x2008040008810210L, 0x031102001C004081L,
+            0x0400400480028220L, 0x0002010200408020L, 0x8801081100200040L, 0x2040100080800800L,
+            0x0001008500100800L, 0x0002002200100994L, 0x024200020008C104L, 0xC200004200008401L,
+            0x6020004000808000L, 0x0040100800200020L, 0x8002801002802000L, 0x0801210009001000L,
+            0xB148008008800400L, 0x013A002004040010L, 0x000010281C000603L, 0x0010004402000081L,
+            0x8020400020808000L, 0x0000500820044002L, 0x0081004120030012L, 0x0284420010220008L,
+            0x5840040008008080L, 0x0000040002008080L, 0x0101000200C10004L, 0x80C00120408A0014L,
+            0x0240204080010100L, 0x0801002080400100L, 0x0050200080100080L, 0x0000080090008480L,
+            0x1018008008040180L, 0x0204010040020040L, 0x005008024110A400L, 0x0808004920840200L,
+            0x1A00248000184101L, 0x0040001081082041L, 0x000201089280A042L, 0x2001100100052009L,
+            0x00A2011008042002L, 0x112300140022A811L, 0x4B09100108408224L, 0x1810152104009046L
+    };
+
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x00200284084C0040L, 0x0008024800410441L, 0x0010011200202930L, 0x004820405200A001L,
+            0x0044042000000000L, 0x0880880440210308L, 0x8082023062081228L, 0x0201920084444004L,
+            0x0100C04308111102L, 0x000020010400A888L, 0x0198110404044120L, 0x4250C4440084C000L,
+            0x4410440422004000L, 0x4010010460444810L, 0x040080410820102CL, 0x0001102401041000L,
+            0x01C00060080AB280L, 0x3004104210540102L, 0x8004080844420200L, 0x20C8010420411012L,
+            0x0204010210140000L, 0x104A020108010400L, 0x0402088080900820L, 0x2080210600842481L,
+            0x46A0040111044880L, 0x2041200044080200L, 0x0104022081080100L, 0x2825080201004100L,
+            0x0489080401004000L, 0x8000410002008200L, 0x8000840001240220L, 0x0012120C01209200L,
+            0x4801114088100422L, 0x01829819000C1000L, 0x0009402210100404L, 0x03001108000C0040L,
+            0x0024081200012008L, 0x5420041120030080L, 0x9108382081504200L, 0xA104109200002100L,
+            0x2004040440008404L, 0x1046289014000824L, 0x8901014110000A40L, 0xA240084010421201L,
+            0x0208440408203400L, 0x02065408020010A2L, 0x0902042C18802402L, 0x9008180040420080L,
+            0x000508821040900BL, 0x001C208410080288L, 0x8200902284108000L, 0x0000C00220881008L,
+            0x4000100813041000L, 0x8600202441520420L, 0x0088108400A40244L, 0xA2040400C2120200L,
+            0x0006008084100201L, 0x0C0009008C846008L, 0x0010002080882100L, 0x0850000040841102L,
+            0x0000800084208213L, 0x0000080420040106L, 0x08C0089004085040L, 0x8102048404040220L
+    };
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    // for squares sharing a rank, file or diagonal: the squares strictly between them
+    // (0 when they aren't aligned)
+    private static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_DIRECTIONS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_DIRECTIONS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, 1}, {1, -1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, 1}, {-1, -1}});
+        }
+
+        for (int square = 0; square < 64; square++) {
+            ROOK_MAGICS[square] = buildMagic(square, ROOK_DIRECTIONS, ROOK_MAGIC_NUMBERS[square]);
+            BISHOP_MAGICS[square] = buildMagic(square, BISHOP_DIRECTIONS, BISHOP_MAGIC_NUMBERS[square]);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long toBit = 1L << to;
+                if ((rookAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, 1L << from);
+                } else if ((bishopAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, 1L << from);
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    /**
+     * @return squares a knight on the given square attacks
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * @return squares a king on the given square attacks
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return squares a pawn of the given color on the given square attacks (its diagonal captures)
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param occupied bitboard of every occupied square
+     * @return squares a rook on the given square attacks, up to and including the first blocker on each ray
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @param occupied bitboard of every occupied square
+     * @return squares a bishop on the given square attacks, up to and including the first blocker on each ray
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @param occupied bitboard of every occupied square
+     * @return squares a queen on the given square attacks
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares on the same rank, file or diagonal, otherwise 0
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Finds every piece of the given color attacking a square, by probing outward from the
+     * square with each piece type's attacks and intersecting with that color's pieces.
+     *
+     * @param occupied bitboard of occupied squares to use for blocking sliding attacks
+     * @return bitboard of the attacking pieces' squares
+     */
+    public static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor byColor, long occupied) {
+        // a pawn of byColor attacks this square from wherever a defending pawn here would attack
+        ChessGame.TeamColor defender = byColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = board.getPieces(byColor, ChessPiece.PieceType.QUEEN);
+
+        long attackers = knightAttacks(square) & board.getPieces(byColor, ChessPiece.PieceType.KNIGHT);
+        attackers |= kingAttacks(square) & board.getPieces(byColor, ChessPiece.PieceType.KING);
+        attackers |= pawnAttacks(defender, square) & board.getPieces(byColor, ChessPiece.PieceType.PAWN);
+        attackers |= rookAttacks(square, occupied) & (board.getPieces(byColor, ChessPiece.PieceType.ROOK) | queens);
+        attackers |= bishopAttacks(square, occupied) & (board.getPieces(byColor, ChessPiece.PieceType.BISHOP) | queens);
+        return attackers;
+    }
+
+    /**
+     * @return true if any piece of the given color attacks the square
+     */
+    public static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor byColor) {
+        return attackersTo(board, square, byColor, board.getOccupied()) != 0;
+    }
+
+    private record Magic(long mask, long magic, int shift, long[] table) {
+        long attacks(long occupied) {
+            return table[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+    }
+
+    private static long stepAttacks(int square, int[][] directions) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                attacks |= 1L << (r * 8 + c);
+            }
+        }
+        return attacks;
+    }
+
+    // walks each ray one square at a time, stopping after the first blocker (used to fill the magic tables)
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long bit = 1L << (r * 8 + c);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    // squares whose occupancy can change the attacks: the rays, minus the last square on each
+    private static long relevantMask(int square, int[][] directions) {
+        int row = square >>> 3;
+        int col = square & 7;
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (r + direction[0] >= 0 && r + direction[0] < 8 && c + direction[1] >= 0 && c + direction[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static Magic buildMagic(int square, int[][] directions, long magic) {
+        long mask = relevantMask(square, directions);
+        int shift = 64 - Long.bitCount(mask);
+        long[] table = new long[1 << Long.bitCount(mask)];
+        boolean[] filled = new boolean[table.length];
+
+        // walk every subset of the mask (carry-rippler) and store its attacks in the magic slot
+        long subset = 0L;
+        do {
+            long attacks = slidingAttacks(square, subset, directions);
+            int index = (int) ((subset * magic) >>> shift);
+            if (filled[index] && table[index] != attacks) {
+                throw new IllegalStateException("bad magic number for square " + square);
+            }
+            filled[index] = true;
+            table[index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        return new Magic(mask, magic, shift, table);
+    }
+}
@@ -0,0 +1,131 @@
+package chess.piece;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static chess.ChessPiece.PieceType.*;
+
+/**
+ * Calculates a piece's moves from ChessBoard's bitboards and the precomputed AttackTables,
+ * instead of walking the board one square at a time like the per-piece calculators do.
+ * <p>
+ * Calculators hold no state besides their piece type, so there's one shared instance per
+ * type (see {@link #of}).
+ */
+public final class BitboardMovesCalculator implements PieceMovesCalculator {
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {QUEEN, ROOK, BISHOP, KNIGHT};
+
+    // rows 1 and 8, a pawn moving onto them gets promoted
+    private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+
+    // indexed by PieceType ordinal
+    private static final BitboardMovesCalculator[] CALCULATORS = new BitboardMovesCalculator[ChessPiece.PieceType.values().length];
+
+    static {
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            CALCULATORS[type.ordinal()] = new BitboardMovesCalculator(type);
+        }
+    }
+
+    private final ChessPiece.PieceType type;
+
+    private BitboardMovesCalculator(ChessPiece.PieceType type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the shared calculator for the piece type
+     */
+    public static BitboardMovesCalculator of(ChessPiece.PieceType type) {
+        return CALCULATORS[type.ordinal()];
+    }
+
+    @Override
+    public Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition, ChessGame.TeamColor pieceColor) {
+        long targets = targets(board, myPosition.getSquare(), type, pieceColor);
+
+        // the result list is the only allocation, the moves themselves are shared instances
+        boolean promotes = type == PAWN && (targets & PROMOTION_ROWS) != 0;
+        ArrayList<ChessMove> possibleMoves = new ArrayList<>(Long.bitCount(targets) * (promotes ? 4 : 1));
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            ChessPosition endPosition = ChessPosition.fromSquare(target);
+            if (type == PAWN && (PROMOTION_ROWS & (1L << target)) != 0) {
+                for (ChessPiece.PieceType promotion : PROMOTION_TYPES) {
+                    possibleMoves.add(ChessMove.of(myPosition, endPosition, promotion));
+                }
+            } else {
+                possibleMoves.add(ChessMove.of(myPosition, endPosition, null));
+            }
+        }
+        return possibleMoves;
+    }
+
+    /**
+     * @return every square the piece can move to, ignoring whether it leaves its king in check
+     */
+    static long targets(ChessBoard board, int square, ChessPiece.PieceType type, ChessGame.TeamColor pieceColor) {
+        long occupied = board.getOccupied();
+        long targets = switch (type) {
+            case KING -> AttackTables.kingAttacks(square);
+            case QUEEN -> AttackTables.queenAttacks(square, occupied);
+            case BISHOP -> AttackTables.bishopAttacks(square, occupied);
+            case KNIGHT -> AttackTables.knightAttacks(square);
+            case ROOK -> AttackTables.rookAttacks(square, occupied);
+            case PAWN -> pawnTargets(board, square, pieceColor, occupied);
+        };
+
+        // can't move onto a friendly piece
+        return targets & ~board.getPieces(pieceColor);
+    }
+
+    /**
+     * Adds a packed move from the start square to each target square, expanding pawn moves onto
+     * the last row into one move per promotion type. Moves onto an enemy piece get the capture flag.
+     */
+    static void addMoves(MoveList moves, int square, long targets, ChessPiece.PieceType type, long enemies) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            int flags = (enemies & (1L << target)) != 0 ? PackedMove.CAPTURE : 0;
+            if (type == PAWN && (PROMOTION_ROWS & (1L << target)) != 0) {
+                // pawn reached the end of the board, it can be promoted to any of these
+                for (ChessPiece.PieceType promotion : PROMOTION_TYPES) {
+                    moves.add(PackedMove.encode(square, target, promotion, flags));
+                }
+            } else {
+                moves.add(PackedMove.encode(square, target, null, flags));
+            }
+        }
+    }
+
+    static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    private static long pawnTargets(ChessBoard board, int square, ChessGame.TeamColor pieceColor, long occupied) {
+        ChessGame.TeamColor opColor = opposite(pieceColor);
+
+        // diagonal captures need an enemy piece there
+        long targets = AttackTables.pawnAttacks(pieceColor, square) & board.getPieces(opColor);
+
+        // forward moves need empty squares, two forward only from the starting row
+        int forward = pieceColor == ChessGame.TeamColor.WHITE ? 8 : -8;
+        int startRow = pieceColor == ChessGame.TeamColor.WHITE ? 1 : 6;
+        int oneForward = square + forward;
+        if (oneForward >= 0 && oneForward < 64 && (occupied & (1L << oneForward)) == 0) {
+            targets |= 1L << oneForward;
+
+            int twoForward = oneForward + forward;
+            if ((square >>> 3) == startRow && (occupied & (1L << twoForward)) == 0) {
+                targets |= 1L << twoForward;
+            }
+        }
+        return targets;
+    }
+}
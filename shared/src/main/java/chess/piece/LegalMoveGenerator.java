@@ -0,0 +1,185 @@
+package chess.piece;
+
+import chess.*;
+
+import java.util.Collection;
+
+import static chess.ChessPiece.PieceType.KING;
+
+/**
+ * Generates legal moves for one team on a board without trying each move and looking for check.
+ * <p>
+ * The pieces checking the king and the pieces pinned to it are worked out once when the
+ * generator is created. After that a move is legal when:
+ * <ul>
+ *     <li>a king move lands on a square no enemy piece attacks (with the king itself lifted
+ *     off the board, so it can't hide behind itself along a slider's ray)</li>
+ *     <li>any other move captures the single checking piece or blocks its ray, and a pinned
+ *     piece stays on the line between its king and the pinning piece</li>
+ * </ul>
+ * With two checkers only the king can move.
+ */
+public class LegalMoveGenerator {
+    private final ChessBoard board;
+    private final ChessGame.TeamColor teamColor;
+    private final ChessGame.TeamColor opColor;
+    private final int kingSquare;
+    private final long checkers;
+    private final long pinned;
+
+    // squares a non-king move has to land on: everything when not in check, otherwise the
+    // checking piece plus the squares between it and the king (nothing in double check)
+    private final long checkMask;
+
+    // for each pinned piece's square, the squares it can still move along
+    private final long[] pinRays = new long[64];
+
+    public LegalMoveGenerator(ChessBoard board, ChessGame.TeamColor teamColor) {
+        this.board = board;
+        this.teamColor = teamColor;
+        this.opColor = BitboardMovesCalculator.opposite(teamColor);
+
+        long king = board.getPieces(teamColor, KING);
+        if (king == 0) {
+            // no king on the board means nothing can leave it in check
+            this.kingSquare = -1;
+            this.checkers = 0L;
+            this.pinned = 0L;
+            this.checkMask = ~0L;
+            return;
+        }
+
+        this.kingSquare = Long.numberOfTrailingZeros(king);
+        long occupied = board.getOccupied();
+        this.checkers = AttackTables.attackersTo(board, kingSquare, opColor, occupied);
+
+        if (checkers == 0) {
+            checkMask = ~0L;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | AttackTables.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = 0L;
+        }
+
+        // enemy sliders lined up with the king that have exactly one of our pieces in the way
+        long queens = board.getPieces(opColor, ChessPiece.PieceType.QUEEN);
+        long snipers = (AttackTables.rookAttacks(kingSquare, 0L) & (board.getPieces(opColor, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishopAttacks(kingSquare, 0L) & (board.getPieces(opColor, ChessPiece.PieceType.BISHOP) | queens));
+        long ownPieces = board.getPieces(teamColor);
+        long pinnedPieces = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = AttackTables.between(kingSquare, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & ownPieces) != 0) {
+                pinnedPieces |= blockers;
+                pinRays[Long.numberOfTrailingZeros(blockers)] = AttackTables.between(kingSquare, sniper) | (1L << sniper);
+            }
+        }
+        this.pinned = pinnedPieces;
+    }
+
+    /**
+     * @return True if the team's king is currently attacked
+     */
+    public boolean isInCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * @return bitboard of the squares the piece on the given square can legally move to
+     */
+    public long legalTargets(int square) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece == null || piece.getTeamColor() != teamColor) {
+            return 0L;
+        }
+
+        long targets = BitboardMovesCalculator.targets(board, square, piece.getPieceType(), teamColor);
+        if (square == kingSquare) {
+            return safeKingTargets(targets);
+        }
+
+        targets &= checkMask;
+        if ((pinned & (1L << square)) != 0) {
+            targets &= pinRays[square];
+        }
+        return targets;
+    }
+
+    /**
+     * @return legal moves for the piece at the given position (empty if it isn't this team's piece)
+     */
+    public Collection<ChessMove> legalMoves(ChessPosition position) {
+        MoveList moves = new MoveList();
+        generate(moves, position.getSquare());
+        return moves.toChessMoves();
+    }
+
+    /**
+     * @return every legal move for the team
+     */
+    public Collection<ChessMove> legalMoves() {
+        MoveList moves = new MoveList();
+        generate(moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds every legal move for the team as packed moves (see PackedMove), grouped by start
+     * square in ascending order
+     */
+    public void generate(MoveList moves) {
+        long pieces = board.getPieces(teamColor);
+        while (pieces != 0) {
+            generate(moves, Long.numberOfTrailingZeros(pieces));
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * Adds the legal moves for the piece on the given square as packed moves
+     */
+    public void generate(MoveList moves, int square) {
+        long targets = legalTargets(square);
+        if (targets != 0) {
+            ChessPiece.PieceType type = board.getPiece(square).getPieceType();
+            BitboardMovesCalculator.addMoves(moves, square, targets, type, board.getPieces(opColor));
+        }
+    }
+
+    /**
+     * @return True if the team has at least one legal move, stopping at the first one found
+     */
+    public boolean hasLegalMove() {
+        // in double check only the king can do anything, so look at it first
+        if (kingSquare >= 0 && legalTargets(kingSquare) != 0) {
+            return true;
+        }
+
+        long pieces = board.getPieces(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (square != kingSquare && legalTargets(square) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long safeKingTargets(long targets) {
+        // lift the king off the board so sliders checking it also cover the squares behind it
+        long occupied = board.getOccupied() & ~(1L << kingSquare);
+        long safe = 0L;
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (AttackTables.attackersTo(board, target, opColor, occupied) == 0) {
+                safe |= 1L << target;
+            }
+        }
+        return safe;
+    }
+}
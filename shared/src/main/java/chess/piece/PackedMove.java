@@ -0,0 +1,82 @@
+package chess.piece;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+/**
+ * A move packed into an int so move generation doesn't have to create a ChessMove (and two
+ * ChessPositions) for every move. ChessMoves are only made when a caller outside the engine
+ * asks for them.
+ * <pre>
+ * bits  0-5   start square (0 = a1, 63 = h8)
+ * bits  6-11  end square
+ * bits 12-14  promotion piece, PieceType ordinal + 1 (0 = no promotion)
+ * bit  15     capture flag
+ * </pre>
+ */
+public final class PackedMove {
+    // a1 to a1, never a real move
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+
+    // the bits that say which move it is, flags are left out
+    private static final int MOVE_BITS = 0x7FFF;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece, or null if the move isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> 12) & 0x7;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * @return True if both are the same move, whatever their flags
+     */
+    public static boolean sameMove(int move, int other) {
+        return ((move ^ other) & MOVE_BITS) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(ChessPosition.fromSquare(from(move)), ChessPosition.fromSquare(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the packed form of a ChessMove, or NONE if either position is off the board
+     */
+    public static int fromChessMove(ChessMove move) {
+        if (!onBoard(move.getStartPosition()) || !onBoard(move.getEndPosition())) {
+            return NONE;
+        }
+        return encode(move.getStartPosition().getSquare(), move.getEndPosition().getSquare(), move.getPromotionPiece(), 0);
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+}
@@ -29,10 +29,10 @@ public class PawnMovesCalculator implements PieceMovesCalculator{
             directions = new int[][]{{1,0}, {1,-1}, {1,1}};
             if (myRow == 2) {
                 // the pawn is in its starting position and can also move forward two spaces
-                ChessPosition oneForward = new ChessPosition(myRow + 1, myCol);
-                ChessPosition twoForward = new ChessPosition(myRow + 2, myCol);
+                ChessPosition oneForward = ChessPosition.of(myRow + 1, myCol);
+                ChessPosition twoForward = ChessPosition.of(myRow + 2, myCol);
                 if (board.getPiece(oneForward) == null && board.getPiece(twoForward) == null) {
-                    possibleMoves.add(new ChessMove(myPosition, twoForward, null));
+                    possibleMoves.add(ChessMove.of(myPosition, twoForward, null));
                 }
             }
         } else {
@@ -40,10 +40,10 @@ public class PawnMovesCalculator implements PieceMovesCalculator{
             directions = new int[][]{{-1, 0}, {-1, 1}, {-1, -1}};
             if (myRow == 7) {
                 // the pawn is in its starting position and can also move forward two spaces
-                ChessPosition oneForward = new ChessPosition(myRow - 1, myCol);
-                ChessPosition twoForward = new ChessPosition(myRow - 2, myCol);
+                ChessPosition oneForward = ChessPosition.of(myRow - 1, myCol);
+                ChessPosition twoForward = ChessPosition.of(myRow - 2, myCol);
                 if (board.getPiece(oneForward) == null && board.getPiece(twoForward) == null) {
-                    possibleMoves.add(new ChessMove(myPosition, twoForward, null));
+                    possibleMoves.add(ChessMove.of(myPosition, twoForward, null));
                 }
             }
         }
@@ -55,7 +55,7 @@ public class PawnMovesCalculator implements PieceMovesCalculator{
 
             // verify it is in bounds
             if (x > 0 && x <= 8 && y > 0 && y <= 8) {
-                ChessPosition currPos = new ChessPosition(x, y);
+                ChessPosition currPos = ChessPosition.of(x, y);
                 ChessPiece targetPiece = board.getPiece(currPos);
 
                 if ((targetPiece == null && y == myCol) ||
@@ -63,13 +63,13 @@ public class PawnMovesCalculator implements PieceMovesCalculator{
                     // if a forward move doesn't have a piece blocking it
                     if ((pieceColor == ChessGame.TeamColor.WHITE && x == 8) ||
                     (pieceColor == ChessGame.TeamColor.BLACK && x == 1)) {
-                        possibleMoves.add(new ChessMove(myPosition, currPos, QUEEN));
-                        possibleMoves.add(new ChessMove(myPosition, currPos, ROOK));
-                        possibleMoves.add(new ChessMove(myPosition, currPos, BISHOP));
-                        possibleMoves.add(new ChessMove(myPosition, currPos, KNIGHT));
+                        possibleMoves.add(ChessMove.of(myPosition, currPos, QUEEN));
+                        possibleMoves.add(ChessMove.of(myPosition, currPos, ROOK));
+                        possibleMoves.add(ChessMove.of(myPosition, currPos, BISHOP));
+                        possibleMoves.add(ChessMove.of(myPosition, currPos, KNIGHT));
                     } else {
                         // forward move available and isn't the end of the board
-                        possibleMoves.add(new ChessMove(myPosition, currPos, null));
+                        possibleMoves.add(ChessMove.of(myPosition, currPos, null));
                     }
                 }
             }
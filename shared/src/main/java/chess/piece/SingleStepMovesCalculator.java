@@ -21,12 +21,12 @@ public abstract class SingleStepMovesCalculator implements PieceMovesCalculator{
 
             // verify it is in bounds
             if (x > 0 && x <= 8 && y > 0 && y <= 8) {
-                ChessPosition currPos = new ChessPosition(x, y);
+                ChessPosition currPos = ChessPosition.of(x, y);
                 ChessPiece targetPiece = board.getPiece(currPos);
 
                 if (targetPiece == null || targetPiece.getTeamColor() != pieceColor) {
 //                    System.out.println("possible move: (" + x + ", " + y + ")");
-                    possibleMoves.add(new ChessMove(myPosition, currPos, null));
+                    possibleMoves.add(ChessMove.of(myPosition, currPos, null));
                 }
             }
         }
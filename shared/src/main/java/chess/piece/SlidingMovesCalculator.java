@@ -36,13 +36,13 @@ public abstract class SlidingMovesCalculator implements PieceMovesCalculator {
 
                 if (targetPiece == null) {
 //                    System.out.println("possible move: (" + x + ", " + y + ")");
-                    possibleMoves.add(new ChessMove(myPosition, currPos, null));
+                    possibleMoves.add(ChessMove.of(myPosition, currPos, null));
                     continue;
                 }
 
                 if (targetPiece.getTeamColor() != pieceColor) {
 //                    System.out.println("possible move (op): (" + x + ", " + y + ")");
-                    possibleMoves.add(new ChessMove(myPosition, currPos, null));
+                    possibleMoves.add(ChessMove.of(myPosition, currPos, null));
                 }
 //                System.out.println("not possible move: (" + x + ", " + y + ")");
                 break;
@@ -0,0 +1,109 @@
+package websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary websocket frames for ServerMessages and UserGameCommands, for connections that don't
+ * get permessage-deflate (a proxy in between that strips it for example).
+ * <p>
+ * A frame is one header byte followed by the message's JSON. With PLAIN the JSON is UTF-8,
+ * with DEFLATED it's raw deflate (no zlib header) of the UTF-8. Only messages of at least
+ * compressThreshold bytes are compressed, small ones come out bigger and cost time for nothing.
+ * On a connection that negotiated permessage-deflate pass Integer.MAX_VALUE, the websocket
+ * layer already compresses every message and compressing twice only costs time.
+ * <p>
+ * Decoding takes the most bytes a message may have once inflated, a frame from the other end
+ * that would inflate to more is rejected before it's all in memory.
+ */
+public final class FrameCodec {
+    public static final byte PLAIN = 0;
+    public static final byte DEFLATED = 1;
+
+    private FrameCodec() {
+    }
+
+    public static byte[] encode(String json, int compressThreshold) {
+        byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= compressThreshold) {
+            byte[] deflated = deflate(utf8);
+            // already compressed or random data can grow, send those as they are
+            if (deflated.length < utf8.length) {
+                return withHeader(DEFLATED, deflated, deflated.length);
+            }
+        }
+        return withHeader(PLAIN, utf8, utf8.length);
+    }
+
+    /**
+     * @param maxLength most bytes of JSON the frame may hold, inflated or not
+     * @throws IllegalArgumentException if the frame is empty, corrupt or too long
+     */
+    public static String decode(byte[] frame, int offset, int length, int maxLength) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Empty frame");
+        }
+        if (frame[offset] == PLAIN && length - 1 > maxLength) {
+            throw new IllegalArgumentException("Frame is longer than " + maxLength + " bytes");
+        }
+        return switch (frame[offset]) {
+            case PLAIN -> new String(frame, offset + 1, length - 1, StandardCharsets.UTF_8);
+            case DEFLATED -> new String(inflate(frame, offset + 1, length - 1, maxLength), StandardCharsets.UTF_8);
+            default -> throw new IllegalArgumentException("Unknown frame type " + frame[offset]);
+        };
+    }
+
+    public static String decode(byte[] frame, int maxLength) {
+        return decode(frame, 0, frame.length, maxLength);
+    }
+
+    private static byte[] withHeader(byte type, byte[] body, int length) {
+        byte[] frame = new byte[length + 1];
+        frame[0] = type;
+        System.arraycopy(body, 0, frame, 1, length);
+        return frame;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length, int maxLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(length * 4, maxLength));
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated frame");
+                }
+                if (out.size() + n > maxLength) {
+                    throw new IllegalArgumentException("Frame inflates to more than " + maxLength + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new IllegalArgumentException("Corrupt frame: " + ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+}
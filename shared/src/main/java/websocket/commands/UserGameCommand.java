@@ -29,6 +29,9 @@ public class UserGameCommand {
 
     private ChessMove move;
 
+    // the client applies GAME_DELTA messages itself, so it can get those instead of LOAD_GAME after moves
+    private boolean acceptsDeltas;
+
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID) {
         this.commandType = commandType;
         this.authToken = authToken;
@@ -40,7 +43,9 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        // asks for a LOAD_GAME with the whole game, after a GAME_DELTA didn't match
+        RESYNC
     }
 
     public CommandType getCommandType() {
@@ -63,6 +68,14 @@ public class UserGameCommand {
         this.move = move;
     }
 
+    public boolean acceptsDeltas() {
+        return acceptsDeltas;
+    }
+
+    public void setAcceptsDeltas(boolean acceptsDeltas) {
+        this.acceptsDeltas = acceptsDeltas;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -90,6 +103,9 @@ public class UserGameCommand {
             jsonObject.addProperty("commandType", src.getCommandType().name());
             jsonObject.addProperty("authToken", src.getAuthToken());
             jsonObject.addProperty("gameID", src.getGameID());
+            if (src.acceptsDeltas()) {
+                jsonObject.addProperty("acceptsDeltas", true);
+            }
 
             // for make move commands
             if (src.getMove() != null) {
@@ -124,6 +140,9 @@ public class UserGameCommand {
             Integer gameID = jsonObject.get("gameID").getAsInt();
 
             UserGameCommand command = new UserGameCommand(commandType, authToken, gameID);
+            if (jsonObject.has("acceptsDeltas")) {
+                command.setAcceptsDeltas(jsonObject.get("acceptsDeltas").getAsBoolean());
+            }
 
             // check if the command is for making a move
             if (jsonObject.has("move")) {
@@ -140,10 +159,10 @@ public class UserGameCommand {
                 System.out.println("Deserializing move - start: (" + startRow + "," + startCol + "), end: (" + endRow + "," + endCol + ")");
 
                 // creates chessMove and adds it to the command
-                ChessPosition start = new ChessPosition(startRow, startCol);
-                ChessPosition end = new ChessPosition(endRow, endCol);
+                ChessPosition start = ChessPosition.of(startRow, startCol);
+                ChessPosition end = ChessPosition.of(endRow, endCol);
 
-                command.setMove(new ChessMove(start, end, null));
+                command.setMove(ChessMove.of(start, end, null));
             }
 
             return command;
@@ -0,0 +1,55 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.piece.PackedMove;
+
+/**
+ * What changed in a game after one move, sent instead of the whole game to clients that
+ * asked for deltas. The client makes the move on its own copy of the game and compares the
+ * result with hash (ChessGame.getZobristKey after the move). If they differ, the client's copy
+ * was out of date and it should ask for the full game with a RESYNC command.
+ *
+ * @param move      the move made, packed (see PackedMove)
+ * @param teamTurn  the team to move next
+ * @param check     teamTurn is in check
+ * @param checkmate teamTurn is in checkmate
+ * @param stalemate teamTurn is in stalemate
+ * @param gameOver  the game is over
+ * @param hash      Zobrist key of the game after the move
+ */
+public record GameDelta(int move, ChessGame.TeamColor teamTurn, boolean check, boolean checkmate,
+                        boolean stalemate, boolean gameOver, long hash) {
+
+    /**
+     * @param move      the move just made
+     * @param gameAfter the game after the move
+     */
+    public static GameDelta of(ChessMove move, ChessGame gameAfter) {
+        ChessGame.TeamColor turn = gameAfter.getTeamTurn();
+        return new GameDelta(PackedMove.fromChessMove(move), turn, gameAfter.isInCheck(turn),
+                gameAfter.isInCheckmate(turn), gameAfter.isInStalemate(turn), gameAfter.isGameOver(),
+                gameAfter.getZobristKey());
+    }
+
+    public ChessMove chessMove() {
+        return PackedMove.toChessMove(move);
+    }
+
+    /**
+     * Makes the move on a game that should be in the position before it
+     *
+     * @return True if the game ended up where the server's did, false if it needs a resync
+     * (the game may have been changed either way)
+     */
+    public boolean applyTo(ChessGame game) {
+        try {
+            // quietly, the client redraws the board itself
+            game.applyMove(chessMove());
+        } catch (InvalidMoveException ex) {
+            return false;
+        }
+        return game.getZobristKey() == hash && game.getTeamTurn() == teamTurn;
+    }
+}
@@ -1,5 +1,6 @@
 package websocket.messages;
 
+import com.google.gson.Gson;
 import model.GameData;
 
 import java.util.Objects;
@@ -11,16 +12,23 @@ import java.util.Objects;
  * methods.
  */
 public class ServerMessage {
+    // Gson is thread safe, no need for a new one per message
+    private static final Gson SERIALIZER = new Gson();
+
 //    ServerMessageType serverMessageType;
     private final ServerMessageType serverMessageType;
     private final String message;
     private final String errorMessage;
     private final GameData game;
+    // only set for GAME_DELTA
+    private final GameDelta delta;
 
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        // the move that was just made instead of the whole game, for clients that asked for it
+        GAME_DELTA
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -28,6 +36,7 @@ public class ServerMessage {
         this.message = null;
         this.errorMessage = null;
         this.game = null;
+        this.delta = null;
     }
 
     public ServerMessage(ServerMessageType type, String message) {
@@ -35,6 +44,7 @@ public class ServerMessage {
         this.message = message;
         this.errorMessage = null;
         this.game = null;
+        this.delta = null;
     }
 
     public ServerMessage(ServerMessageType type, GameData gameData) {
@@ -42,6 +52,7 @@ public class ServerMessage {
         this.message = null;
         this.errorMessage = null;
         this.game = gameData;
+        this.delta = null;
         System.out.println("Created LOAD_GAME message with game data: " + gameData);
     }
 
@@ -50,6 +61,15 @@ public class ServerMessage {
         this.message = message;
         this.errorMessage = errorMessage;
         this.game = gameData;
+        this.delta = null;
+    }
+
+    public ServerMessage(GameDelta delta) {
+        this.serverMessageType = ServerMessageType.GAME_DELTA;
+        this.message = null;
+        this.errorMessage = null;
+        this.game = null;
+        this.delta = delta;
     }
 
     public String getMessage() {
@@ -64,6 +84,10 @@ public class ServerMessage {
         return game;
     }
 
+    public GameDelta getDelta() {
+        return delta;
+    }
+
     public ServerMessageType getServerMessageType() {
         return serverMessageType;
     }
@@ -87,6 +111,6 @@ public class ServerMessage {
 
     @Override
     public String toString() {
-        return new com.google.gson.Gson().toJson(this);
+        return SERIALIZER.toJson(this);
     }
 }
@@ -0,0 +1,50 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FenTest {
+
+    @Test
+    @DisplayName("Starting position matches resetBoard")
+    public void startingPosition() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        Assertions.assertEquals(board, ChessBoard.fromFen(Perft.START_FEN));
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", board.toFen());
+        Assertions.assertEquals(Perft.START_FEN, new ChessGame().toFen());
+    }
+
+    @Test
+    @DisplayName("Games survive FEN export and import")
+    public void roundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+
+        Assertions.assertEquals("rnbqkb1r/pppppppp/5n2/4P3/8/8/PPPP1PPP/RNBQKBNR b - - 0 1", game.toFen());
+        Assertions.assertEquals(game, ChessGame.fromFen(game.toFen()));
+    }
+
+    @Test
+    @DisplayName("Side to move and trailing fields")
+    public void fields() {
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, ChessGame.fromFen("8/8/8/8/8/8/8/K6k b").getTeamTurn());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, ChessGame.fromFen("8/8/8/8/8/8/8/K6k w KQkq e3 4 20").getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Invalid FEN is rejected")
+    public void invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8 w"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/9 w"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/7kq w"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/7x w"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessBoard.fromFen("8/8/8/8/8/8/8/8/8"));
+    }
+}
@@ -0,0 +1,36 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FlyweightTest {
+
+    @Test
+    @DisplayName("Factories return one shared instance equal to a new one")
+    public void sharedInstances() {
+        Assertions.assertSame(ChessPosition.of(3, 4), ChessPosition.of(3, 4));
+        Assertions.assertSame(ChessPosition.of(3, 4), ChessPosition.fromSquare(19));
+        Assertions.assertEquals(new ChessPosition(3, 4), ChessPosition.of(3, 4));
+
+        ChessPiece piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        Assertions.assertSame(piece, ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT), piece);
+
+        ChessMove move = ChessMove.of(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        Assertions.assertSame(move, ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN));
+        Assertions.assertNotSame(move, ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.ROOK));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN), move);
+    }
+
+    @Test
+    @DisplayName("Positions off the board still work")
+    public void offBoard() {
+        ChessPosition position = ChessPosition.of(0, 9);
+        Assertions.assertEquals(0, position.getRow());
+        Assertions.assertEquals(9, position.getColumn());
+
+        ChessMove move = ChessMove.of(ChessPosition.of(1, 1), position, null);
+        Assertions.assertEquals(position, move.getEndPosition());
+    }
+}
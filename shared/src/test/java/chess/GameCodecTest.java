@@ -0,0 +1,44 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class GameCodecTest {
+
+    @Test
+    @DisplayName("Starting game survives encoding")
+    public void startingGame() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = GameCodec.encode(game);
+
+        Assertions.assertEquals(GameCodec.LENGTH, bytes.length);
+        ChessGame decoded = GameCodec.decode(bytes);
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+        Assertions.assertFalse(decoded.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Turn, game over and promoted pieces survive encoding")
+    public void gameState() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(1, 8), ChessPiece.PieceType.QUEEN));
+        game.setGameOver(true);
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertEquals(game, decoded);
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, decoded.getTeamTurn());
+        Assertions.assertTrue(decoded.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Unknown versions and bad lengths are rejected")
+    public void badInput() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        bytes[0] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(bytes));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[]{GameCodec.VERSION, 0}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[0]));
+    }
+}
@@ -0,0 +1,61 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+/**
+ * Reference perft counts from https://www.chessprogramming.org/Perft_Results.
+ * Castling and en passant aren't implemented, so only positions and depths where neither
+ * move can come up are used (e.g. en passant first shows up at depth 5 from the start).
+ */
+public class PerftTest {
+
+    @Test
+    @DisplayName("Starting position")
+    public void startingPosition() {
+        assertPerft(Perft.START_FEN, new long[]{20, 400, 8902, 197281});
+    }
+
+    @Test
+    @DisplayName("Middlegame position without castling rights")
+    public void middlegame() {
+        // "position 6" from the reference page
+        assertPerft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                new long[]{46, 2079, 89890});
+    }
+
+    @Test
+    @DisplayName("Promotions")
+    public void promotions() {
+        assertPerft("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", new long[]{24, 496, 9483, 182838});
+    }
+
+    @Test
+    @DisplayName("Rook and pawn endgame")
+    public void endgame() {
+        // "position 3", en passant is possible from depth 3 on
+        assertPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[]{14, 191});
+    }
+
+    @Test
+    @DisplayName("Divide adds up to perft")
+    public void divide() {
+        Perft perft = Perft.fromFen(Perft.START_FEN);
+        Map<ChessMove, Long> counts = perft.divide(3);
+
+        Assertions.assertEquals(20, counts.size());
+        Assertions.assertEquals(8902L, counts.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(20, perft.divide(1).size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> perft.divide(0));
+    }
+
+    private static void assertPerft(String fen, long[] expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            Assertions.assertEquals(expected[depth - 1], Perft.fromFen(fen).perft(depth),
+                    "Wrong perft count at depth " + depth + " for " + fen);
+        }
+    }
+}
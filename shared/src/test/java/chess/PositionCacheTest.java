@@ -0,0 +1,120 @@
+package chess;
+
+import chess.piece.LegalMoveGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PositionCacheTest {
+
+    @Test
+    @DisplayName("Second lookup of a position is a hit")
+    public void hitAfterMiss() {
+        PositionCache cache = new PositionCache(64);
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        PositionCache.Entry first = cache.lookup(board, ChessGame.TeamColor.WHITE);
+        PositionCache.Entry second = cache.lookup(board, ChessGame.TeamColor.WHITE);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(20, first.legalMoves().size());
+    }
+
+    @Test
+    @DisplayName("Each team to move gets its own entry")
+    public void teamsAreSeparate() {
+        PositionCache cache = new PositionCache(64);
+        ChessBoard board = ChessBoard.fromFen("7k/5Q2/6K1/8/8/8/8/8 b");
+
+        Assertions.assertTrue(cache.lookup(board, ChessGame.TeamColor.BLACK).isStalemate());
+        Assertions.assertFalse(cache.lookup(board, ChessGame.TeamColor.WHITE).isStalemate());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Moves by square match the move generator")
+    public void movesBySquare() {
+        PositionCache cache = new PositionCache(64);
+        ChessBoard board = ChessBoard.fromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w");
+        PositionCache.Entry entry = cache.lookup(board, ChessGame.TeamColor.WHITE);
+        LegalMoveGenerator generator = new LegalMoveGenerator(board, ChessGame.TeamColor.WHITE);
+
+        for (int square = 0; square < 64; square++) {
+            Assertions.assertEquals(new HashSet<>(generator.legalMoves(ChessPosition.fromSquare(square))),
+                    new HashSet<>(entry.legalMoves(square)), "square " + square);
+        }
+    }
+
+    @Test
+    @DisplayName("Positions sharing a key don't get each other's moves")
+    public void keyCollision() {
+        PositionCache cache = new PositionCache(64);
+        ChessBoard start = new ChessBoard();
+        start.resetBoard();
+        ChessBoard other = ChessBoard.fromFen("7k/5Q2/6K1/8/8/8/8/8 b");
+
+        PositionCache.Entry first = cache.lookup(start, ChessGame.TeamColor.WHITE, 42L);
+        PositionCache.Entry second = cache.lookup(other, ChessGame.TeamColor.WHITE, 42L);
+
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertEquals(20, first.moveCount());
+        Assertions.assertSame(first, cache.lookup(start, ChessGame.TeamColor.WHITE, 42L));
+    }
+
+    @Test
+    @DisplayName("Cache stays bounded and keeps answering correctly")
+    public void bounded() throws InterruptedException {
+        PositionCache cache = new PositionCache(16);
+        Perft perft = Perft.fromFen(Perft.START_FEN);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // every thread walks the same positions, so lookups race on the same buckets
+            var futures = new ArrayList<Future<Long>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> countWithCache(cache, ChessBoard.fromFen(Perft.START_FEN),
+                        ChessGame.TeamColor.WHITE, 3)));
+            }
+            for (Future<Long> future : futures) {
+                Assertions.assertEquals(perft.perft(3), future.get());
+            }
+            // far more positions than fit were looked up, only 16 of them were kept
+            Assertions.assertTrue(cache.getMisses() > 16);
+            Assertions.assertTrue(cache.size() <= 16, "size " + cache.size());
+        } catch (ExecutionException ex) {
+            Assertions.fail(ex.getCause());
+        } finally {
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static long countWithCache(PositionCache cache, ChessBoard board, ChessGame.TeamColor color, int depth) {
+        if (depth == 0) {
+            return 1L;
+        }
+        ChessGame.TeamColor opColor = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long nodes = 0L;
+        for (ChessMove move : cache.lookup(board, color).legalMoves()) {
+            ChessPiece piece = board.getPiece(move.getStartPosition());
+            ChessPiece captured = board.getPiece(move.getEndPosition());
+            board.addPiece(move.getEndPosition(), piece);
+            board.addPiece(move.getStartPosition(), null);
+            nodes += countWithCache(cache, board, opColor, depth - 1);
+            board.addPiece(move.getStartPosition(), piece);
+            board.addPiece(move.getEndPosition(), captured);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,73 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ZobristTest {
+
+    @Test
+    @DisplayName("Key after moves matches a board built from scratch")
+    public void incrementalMatchesRebuilt() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 4));
+
+        ChessBoard rebuilt = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = game.getBoard().getPiece(square);
+            if (piece != null) {
+                rebuilt.addPiece(ChessPosition.fromSquare(square), piece);
+            }
+        }
+        Assertions.assertEquals(rebuilt.getZobristKey(), game.getBoard().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Transpositions have the same key")
+    public void transposition() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6));
+        first.makeMove(move(8, 7, 6, 6));
+        first.makeMove(move(1, 2, 3, 3));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3));
+        second.makeMove(move(8, 7, 6, 6));
+        second.makeMove(move(1, 7, 3, 6));
+
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("Side to move changes the key")
+    public void sideToMove() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        Assertions.assertEquals(white.getBoard().getZobristKey(), black.getBoard().getZobristKey());
+        Assertions.assertNotEquals(white.getZobristKey(), black.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Moving a piece away and back restores the key")
+    public void moveAndBack() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getZobristKey();
+
+        game.makeMove(move(1, 7, 3, 6));
+        Assertions.assertNotEquals(start, game.getZobristKey());
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+        Assertions.assertEquals(start, game.getZobristKey());
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
@@ -0,0 +1,58 @@
+package chess.piece;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PackedMoveTest {
+
+    @Test
+    @DisplayName("ChessMove survives packing and unpacking")
+    public void roundTrip() {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                for (ChessPiece.PieceType promotion : new ChessPiece.PieceType[]{null, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KNIGHT}) {
+                    ChessMove move = new ChessMove(ChessPosition.fromSquare(from), ChessPosition.fromSquare(to), promotion);
+                    Assertions.assertEquals(move, PackedMove.toChessMove(PackedMove.fromChessMove(move)));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Flags don't change which move it is")
+    public void flags() {
+        int quiet = PackedMove.encode(12, 28, null, 0);
+        int capture = PackedMove.encode(12, 28, null, PackedMove.CAPTURE);
+
+        Assertions.assertTrue(PackedMove.isCapture(capture));
+        Assertions.assertFalse(PackedMove.isCapture(quiet));
+        Assertions.assertTrue(PackedMove.sameMove(quiet, capture));
+        Assertions.assertFalse(PackedMove.sameMove(quiet, PackedMove.encode(12, 20, null, 0)));
+    }
+
+    @Test
+    @DisplayName("Moves off the board don't pack")
+    public void offBoard() {
+        ChessMove move = new ChessMove(new ChessPosition(0, 1), new ChessPosition(1, 1), null);
+        Assertions.assertEquals(PackedMove.NONE, PackedMove.fromChessMove(move));
+    }
+
+    @Test
+    @DisplayName("MoveList grows and can be reused")
+    public void moveList() {
+        MoveList moves = new MoveList(2);
+        for (int i = 1; i <= 300; i++) {
+            moves.add(PackedMove.encode(i % 64, (i + 1) % 64, null, 0));
+        }
+        Assertions.assertEquals(300, moves.size());
+        Assertions.assertTrue(moves.contains(PackedMove.encode(5, 6, null, PackedMove.CAPTURE)));
+
+        moves.clear();
+        Assertions.assertTrue(moves.isEmpty());
+        Assertions.assertFalse(moves.contains(PackedMove.encode(5, 6, null, 0)));
+    }
+}
@@ -0,0 +1,58 @@
+package websocket;
+
+import chess.ChessGame;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.ServerMessage;
+
+public class FrameCodecTest {
+
+    @Test
+    @DisplayName("Large messages are compressed and come back the same")
+    public void compressed() {
+        GameData game = new GameData(1, "white", "black", "game", new ChessGame());
+        String json = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME, game).toString();
+
+        byte[] frame = FrameCodec.encode(json, 256);
+        Assertions.assertEquals(FrameCodec.DEFLATED, frame[0]);
+        Assertions.assertTrue(frame.length < json.length() / 2, "a board should compress well");
+        Assertions.assertEquals(json, FrameCodec.decode(frame, 1 << 16));
+    }
+
+    @Test
+    @DisplayName("Messages under the threshold are sent as they are")
+    public void belowThreshold() {
+        String json = "{\"serverMessageType\":\"NOTIFICATION\",\"message\":\"héllo\"}";
+
+        byte[] frame = FrameCodec.encode(json, 256);
+        Assertions.assertEquals(FrameCodec.PLAIN, frame[0]);
+        Assertions.assertEquals(json, FrameCodec.decode(frame, 1 << 16));
+    }
+
+    @Test
+    @DisplayName("Unknown and truncated frames are rejected")
+    public void badFrames() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrameCodec.decode(new byte[]{7, 1, 2}, 1 << 16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrameCodec.decode(new byte[0], 1 << 16));
+
+        byte[] frame = FrameCodec.encode("x".repeat(1000), 0);
+        byte[] truncated = new byte[frame.length / 2];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrameCodec.decode(truncated, 1 << 16));
+    }
+
+    @Test
+    @DisplayName("Frames that inflate past the limit are rejected")
+    public void tooLong() {
+        // a few KB of deflate that would be 10 MB of JSON
+        byte[] bomb = FrameCodec.encode("x".repeat(10_000_000), 0);
+        Assertions.assertTrue(bomb.length < 20_000);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrameCodec.decode(bomb, 1 << 16));
+
+        byte[] plain = FrameCodec.encode("x".repeat(1000), Integer.MAX_VALUE);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FrameCodec.decode(plain, 999));
+        Assertions.assertEquals(1000, FrameCodec.decode(plain, 1000).length());
+    }
+}
@@ -0,0 +1,61 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class GameDeltaTest {
+
+    @Test
+    @DisplayName("Applying a delta brings a copy to the same game")
+    public void applyDelta() throws InvalidMoveException {
+        ChessGame server = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        ChessGame client = GameCodec.decode(GameCodec.encode(server));
+
+        ChessMove move = new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null);
+        server.makeMove(move);
+        GameDelta delta = GameDelta.of(move, server);
+
+        Assertions.assertTrue(delta.checkmate());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, delta.teamTurn());
+        Assertions.assertTrue(delta.applyTo(client));
+        Assertions.assertEquals(server, client);
+    }
+
+    @Test
+    @DisplayName("A copy that missed a move doesn't match")
+    public void missedMove() throws InvalidMoveException {
+        ChessGame server = new ChessGame();
+        ChessGame client = new ChessGame();
+
+        server.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        ChessMove reply = new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null);
+        server.makeMove(reply);
+        ChessMove move = new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null);
+        server.makeMove(move);
+
+        // the client only saw white's first move
+        client.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertFalse(GameDelta.of(move, server).applyTo(client));
+    }
+
+    @Test
+    @DisplayName("Deltas survive the trip through JSON")
+    public void json() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        ServerMessage message = new ServerMessage(GameDelta.of(move, game));
+
+        ServerMessage parsed = new Gson().fromJson(message.toString(), ServerMessage.class);
+        Assertions.assertEquals(ServerMessage.ServerMessageType.GAME_DELTA, parsed.getServerMessageType());
+        Assertions.assertEquals(message.getDelta(), parsed.getDelta());
+        Assertions.assertEquals(move, parsed.getDelta().chessMove());
+    }
+}